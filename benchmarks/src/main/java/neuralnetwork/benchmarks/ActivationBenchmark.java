@@ -0,0 +1,65 @@
+package neuralnetwork.benchmarks;
+
+import neuralnetwork.ActivationFunction;
+import neuralnetwork.Matrix;
+import neuralnetwork.Sigmoid;
+import neuralnetwork.Softmax;
+import neuralnetwork.Tanh;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Each activation function and its derivative over a batch of 64 samples by 'width' nodes
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class ActivationBenchmark {
+
+    @Param({"sigmoid", "tanh", "softmax", "sigmoid-approx", "tanh-approx", "softmax-approx"})
+    public String activation;
+
+    @Param({"256"})
+    public int width;
+
+    private ActivationFunction function;
+    private Matrix input;
+    private Matrix output;
+    private Matrix result;
+
+    @Setup
+    public void setup() {
+        function = create(activation);
+        input = MatrixBenchmark.randomMatrix(64, width, new Random(0));
+        output = new Matrix(64, width);
+        result = new Matrix(64, width);
+        function.function(input, output);
+    }
+
+    static ActivationFunction create(String name) {
+        switch (name) {
+            case "sigmoid": return new Sigmoid();
+            case "tanh": return new Tanh();
+            case "softmax": return new Softmax();
+            case "sigmoid-approx": return new Sigmoid(true);
+            case "tanh-approx": return new Tanh(true);
+            case "softmax-approx": return new Softmax(true);
+            default: throw new IllegalArgumentException("Unknown activation function " + name);
+        }
+    }
+
+    @Benchmark
+    public Matrix function() {
+        function.function(input, result);
+        return result;
+    }
+
+    @Benchmark
+    public Matrix derivative() {
+        function.derivative(output, result);
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+package neuralnetwork.benchmarks;
+
+import neuralnetwork.ActivationFunction;
+import neuralnetwork.InferenceModel;
+import neuralnetwork.Matrix;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.Precision;
+import neuralnetwork.QuantizedModel;
+import neuralnetwork.Sigmoid;
+import neuralnetwork.Softmax;
+import neuralnetwork.Tanh;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/* Prediction with an untrained width-width-width-10 network, as a double or float InferenceModel
+or as an int8 QuantizedModel calibrated on the benchmark's own input */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class InferenceBenchmark {
+
+    @Param({"256", "1024"})
+    public int width;
+
+    @Param({"1", "64"})
+    public int batchSize;
+
+    @Param({"double", "float", "int8"})
+    public String model;
+
+    private InferenceModel inferenceModel;
+    private QuantizedModel quantizedModel;
+    private Matrix input;
+
+    @Setup
+    public void setup() {
+        Precision precision = model.equals("double") ? Precision.DOUBLE : Precision.FLOAT;
+        NeuralNetwork network = new NeuralNetwork(new ArrayList<>(List.of(width, width, width, 10)),
+                new ArrayList<ActivationFunction>(List.of(new Sigmoid(), new Tanh(), new Softmax())), 0.01, precision);
+        input = MatrixBenchmark.randomMatrix(batchSize, width, new Random(0), precision);
+        if (model.equals("int8"))
+            quantizedModel = new QuantizedModel(network, input);
+        else
+            inferenceModel = new InferenceModel(network);
+    }
+
+    @Benchmark
+    public Matrix predict() {
+        return quantizedModel != null ? quantizedModel.predict(input) : inferenceModel.predict(input);
+    }
+}
@@ -0,0 +1,97 @@
+package neuralnetwork.benchmarks;
+
+import neuralnetwork.ActivationFunction;
+import neuralnetwork.Matrix;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.Sigmoid;
+import neuralnetwork.Softmax;
+import neuralnetwork.Tanh;
+import neuralnetwork.TrainingListener;
+import neuralnetwork.TrainingMetrics;
+import jdk.jfr.Recording;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/* One training step (forward, backward and update) with training metrics off and on, to show what
+measuring costs. "off" is the network without metrics, which pays only null checks; "on" times
+every layer and phase and calls a listener each step; "allocations" also reads the thread's
+allocation counter twice a step; "jfr" records every step and layer event to a JFR recording
+started in the benchmark's own JVM. The Iris-sized network at batch 1 has the cheapest steps, so
+shows the overhead at its largest */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class InstrumentationBenchmark {
+
+    @Param({"iris", "wide"})
+    public String topology;
+
+    @Param({"off", "on", "allocations", "jfr"})
+    public String metrics;
+
+    private NeuralNetwork network;
+    private Matrix input;
+    private Matrix output;
+    private Recording recording;
+    private long stepSamples; // Read by the listener so that its call is not optimised away
+
+    @Setup
+    public void setup() {
+        ArrayList<Integer> sizes = new ArrayList<>();
+        ArrayList<ActivationFunction> activations = new ArrayList<>();
+        int batchSize;
+        if (topology.equals("iris")) {
+            // Same topology as Iris.main, trained one sample at a time
+            sizes.addAll(List.of(4, 5, 5, 5, 3));
+            activations.addAll(List.of(new Sigmoid(), new Tanh(), new Sigmoid(), new Softmax()));
+            batchSize = 1;
+        } else if (topology.equals("wide")) {
+            sizes.addAll(List.of(64, 256, 256, 10));
+            activations.addAll(List.of(new Sigmoid(), new Tanh(), new Softmax()));
+            batchSize = 32;
+        } else {
+            throw new IllegalArgumentException("Unknown topology " + topology);
+        }
+        Random random = new Random(0);
+        input = MatrixBenchmark.randomMatrix(batchSize, sizes.get(0), random);
+        output = MatrixBenchmark.randomMatrix(batchSize, sizes.get(sizes.size() - 1), random);
+        network = new NeuralNetwork(sizes, activations, 0.01);
+        if (!metrics.equals("off")) {
+            TrainingMetrics trainingMetrics = new TrainingMetrics(metrics.equals("allocations"));
+            trainingMetrics.addListener(new TrainingListener() {
+                @Override
+                public void onStep(TrainingMetrics.Step step) {
+                    stepSamples += step.getSamples();
+                }
+            });
+            network.setMetrics(trainingMetrics);
+        }
+        if (metrics.equals("jfr")) {
+            recording = new Recording();
+            recording.enable("neuralnetwork.TrainingStep");
+            recording.enable("neuralnetwork.LayerStep");
+            recording.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (recording != null)
+            recording.close();
+    }
+
+    @Benchmark
+    public Matrix step() {
+        network.feedForward(input);
+        network.backpropagate(output);
+        network.updateWeights();
+        return network.getOutput();
+    }
+}
@@ -0,0 +1,59 @@
+package neuralnetwork.benchmarks;
+
+import neuralnetwork.Layer;
+import neuralnetwork.Matrix;
+import neuralnetwork.Sigmoid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The three phases of a training step on a single sigmoid layer, measured separately
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class LayerBenchmark {
+
+    @Param({"4:5", "64:64", "256:256"})
+    public String shape; // Input nodes:output nodes
+
+    @Param({"1", "32"})
+    public int batchSize;
+
+    private Layer layer;
+    private Matrix input;
+    private Matrix errorTerms;
+
+    @Setup
+    public void setup() {
+        String[] dims = shape.split(":");
+        int inputs = Integer.parseInt(dims[0]);
+        int outputs = Integer.parseInt(dims[1]);
+        Random random = new Random(0);
+        layer = new Layer(inputs, outputs, new Sigmoid(), 0.01);
+        input = MatrixBenchmark.randomMatrix(batchSize, inputs, random);
+        errorTerms = MatrixBenchmark.randomMatrix(batchSize, outputs, random);
+        layer.feedForward(input); // backpropagate needs the outputs of a forward pass
+    }
+
+    @Benchmark
+    public Matrix feedForward() {
+        layer.feedForward(input);
+        return layer.getOutputNodes();
+    }
+
+    @Benchmark
+    public Matrix backpropagate() {
+        layer.backpropagate(errorTerms);
+        return layer.getNewErrorTerms();
+    }
+
+    @Benchmark
+    public Matrix updateWeights() {
+        layer.updateWeights();
+        return layer.getWeights();
+    }
+}
@@ -0,0 +1,71 @@
+package neuralnetwork.benchmarks;
+
+import neuralnetwork.Matrix;
+import neuralnetwork.Precision;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Square matrix products and sums, both allocating and writing into a preallocated result
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class MatrixBenchmark {
+
+    @Param({"16", "64", "256"})
+    public int size;
+
+    @Param({"DOUBLE", "FLOAT"})
+    public Precision precision;
+
+    private Matrix left;
+    private Matrix right;
+    private Matrix result;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        left = randomMatrix(size, size, random, precision);
+        right = randomMatrix(size, size, random, precision);
+        result = new Matrix(size, size, precision);
+    }
+
+    static Matrix randomMatrix(int rows, int cols, Random random) {
+        return randomMatrix(rows, cols, random, Precision.DOUBLE);
+    }
+
+    static Matrix randomMatrix(int rows, int cols, Random random, Precision precision) {
+        Matrix matrix = new Matrix(rows, cols, precision);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++)
+                matrix.setElement(random.nextDouble() * 2 - 1, row, col);
+        }
+        return matrix;
+    }
+
+    @Benchmark
+    public Matrix cartProd() {
+        return left.cartProd(right);
+    }
+
+    @Benchmark
+    public Matrix multiplyInto() {
+        left.multiplyInto(right, result);
+        return result;
+    }
+
+    @Benchmark
+    public Matrix sum() {
+        return left.sum(right);
+    }
+
+    @Benchmark
+    public Matrix sumInto() {
+        left.sumInto(right, result);
+        return result;
+    }
+}
@@ -0,0 +1,113 @@
+package neuralnetwork.benchmarks;
+
+import neuralnetwork.ActivationFunction;
+import neuralnetwork.Dataset;
+import neuralnetwork.Matrix;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.Precision;
+import neuralnetwork.Sigmoid;
+import neuralnetwork.Softmax;
+import neuralnetwork.Tanh;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/* One full training epoch (forward, backward and update for every batch) on the Iris data and
+on synthetic data for a wide and a deep topology. Iris is read from resources/iris.data, so run
+from the repository root or point -Diris.data at the file */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class NetworkBenchmark {
+
+    @Param({"iris", "wide", "deep"})
+    public String topology;
+
+    @Param({"1", "32"})
+    public int batchSize;
+
+    @Param({"DOUBLE", "FLOAT"})
+    public Precision precision;
+
+    private NeuralNetwork network;
+    private final List<Matrix> inputBatches = new ArrayList<>();
+    private final List<Matrix> outputBatches = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        Matrix inputs;
+        Matrix outputs;
+        ArrayList<Integer> sizes = new ArrayList<>();
+        ArrayList<ActivationFunction> activations = new ArrayList<>();
+        switch (topology) {
+            case "iris": {
+                // Same topology and data as Iris.main, read without writing a cache
+                Path csv = Path.of(System.getProperty("iris.data", "resources/iris.data"));
+                Path cache = Files.createTempFile("iris", ".cache");
+                try {
+                    Dataset.convert(csv, cache, 4);
+                    Dataset data = Dataset.load(cache);
+                    inputs = data.loadInputs();
+                    outputs = data.loadOutputs();
+                } finally {
+                    Files.deleteIfExists(cache);
+                }
+                sizes.addAll(List.of(4, 5, 5, 5, 3));
+                activations.addAll(List.of(new Sigmoid(), new Tanh(), new Sigmoid(), new Softmax()));
+                break;
+            }
+            case "wide": {
+                Random random = new Random(0);
+                inputs = MatrixBenchmark.randomMatrix(1024, 64, random);
+                outputs = MatrixBenchmark.randomMatrix(1024, 10, random);
+                sizes.addAll(List.of(64, 512, 512, 10));
+                activations.addAll(List.of(new Sigmoid(), new Tanh(), new Softmax()));
+                break;
+            }
+            case "deep": {
+                Random random = new Random(0);
+                inputs = MatrixBenchmark.randomMatrix(1024, 32, random);
+                outputs = MatrixBenchmark.randomMatrix(1024, 10, random);
+                sizes.add(32);
+                for (int layer = 0; layer < 8; layer++) {
+                    sizes.add(32);
+                    activations.add(layer % 2 == 0 ? new Sigmoid() : new Tanh());
+                }
+                sizes.add(10);
+                activations.add(new Softmax());
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown topology " + topology);
+        }
+        network = new NeuralNetwork(sizes, activations, 0.01, precision);
+        // Converted once here so that the measured epoch does not convert every batch
+        inputs = inputs.copy(precision);
+        outputs = outputs.copy(precision);
+        // Batches are views into the full data so the measured epoch does not copy samples
+        for (int start = 0; start < inputs.getRows(); start += batchSize) {
+            int rows = Math.min(batchSize, inputs.getRows() - start);
+            inputBatches.add(inputs.view(start, 0, rows, inputs.getCols()));
+            outputBatches.add(outputs.view(start, 0, rows, outputs.getCols()));
+        }
+    }
+
+    @Benchmark
+    public Matrix epoch() {
+        for (int batch = 0; batch < inputBatches.size(); batch++) {
+            network.feedForward(inputBatches.get(batch));
+            network.backpropagate(outputBatches.get(batch));
+            network.updateWeights();
+        }
+        return network.getOutput();
+    }
+}
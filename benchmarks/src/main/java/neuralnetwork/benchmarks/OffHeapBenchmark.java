@@ -0,0 +1,85 @@
+package neuralnetwork.benchmarks;
+
+import jdk.incubator.foreign.ResourceScope;
+import neuralnetwork.ActivationFunction;
+import neuralnetwork.InferenceModel;
+import neuralnetwork.Matrix;
+import neuralnetwork.ModelCheckpoint;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.Precision;
+import neuralnetwork.Sigmoid;
+import neuralnetwork.Softmax;
+import neuralnetwork.Tanh;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/* A training step and a prediction with a 512-512-512-10 network whose parameters are on the heap,
+off-heap in native memory, or (for prediction) mapped read-only from a saved checkpoint */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector,jdk.incubator.foreign")
+@State(Scope.Thread)
+public class OffHeapBenchmark {
+
+    @Param({"heap", "native", "mapped"})
+    public String storage;
+
+    @Param({"1", "32"})
+    public int batchSize;
+
+    private ResourceScope scope;
+    private Path checkpoint;
+    private NeuralNetwork network;
+    private InferenceModel model;
+    private Matrix input;
+    private Matrix output;
+
+    @Setup
+    public void setup() throws IOException {
+        ArrayList<Integer> sizes = new ArrayList<>(List.of(512, 512, 512, 10));
+        ArrayList<ActivationFunction> activations = new ArrayList<>(List.of(new Sigmoid(), new Tanh(), new Softmax()));
+        scope = ResourceScope.newConfinedScope();
+        network = storage.equals("heap")
+                ? new NeuralNetwork(sizes, activations, 0.01)
+                : new NeuralNetwork(sizes, activations, 0.01, Precision.DOUBLE, scope);
+        if (storage.equals("mapped")) {
+            checkpoint = Files.createTempFile("offheap", ".model");
+            ModelCheckpoint.save(network, checkpoint);
+            model = ModelCheckpoint.map(checkpoint, scope);
+        } else {
+            model = new InferenceModel(network);
+        }
+        Random random = new Random(0);
+        input = MatrixBenchmark.randomMatrix(batchSize, 512, random);
+        output = MatrixBenchmark.randomMatrix(batchSize, 10, random);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        scope.close();
+        if (checkpoint != null)
+            Files.deleteIfExists(checkpoint);
+    }
+
+    @Benchmark
+    public Matrix trainingStep() {
+        network.feedForward(input);
+        network.backpropagate(output);
+        network.updateWeights();
+        return network.getOutput();
+    }
+
+    @Benchmark
+    public Matrix predict() {
+        return model.predict(input);
+    }
+}
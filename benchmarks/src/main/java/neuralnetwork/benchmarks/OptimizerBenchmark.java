@@ -0,0 +1,76 @@
+package neuralnetwork.benchmarks;
+
+import neuralnetwork.Adam;
+import neuralnetwork.Layer;
+import neuralnetwork.Matrix;
+import neuralnetwork.Momentum;
+import neuralnetwork.Nesterov;
+import neuralnetwork.Optimizer;
+import neuralnetwork.Precision;
+import neuralnetwork.RMSProp;
+import neuralnetwork.SGD;
+import neuralnetwork.Sigmoid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/* One updateWeights call of a layer with each optimizer. Deltas are refilled by a backpropagation
+step before each call, outside the timing: left at zero, the optimizer state would decay into
+subnormal numbers, whose arithmetic is many times slower. The state is preallocated, so no call
+allocates */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class OptimizerBenchmark {
+
+    @Param({"64:64", "256:256", "1024:1024"})
+    public String shape; // Input nodes:output nodes
+
+    @Param({"sgd", "momentum", "nesterov", "rmsprop", "adam"})
+    public String optimizer;
+
+    @Param({"double", "float"})
+    public String precision;
+
+    private Layer layer;
+    private Matrix errorTerms;
+
+    @Setup
+    public void setup() {
+        String[] dims = shape.split(":");
+        int inputs = Integer.parseInt(dims[0]);
+        int outputs = Integer.parseInt(dims[1]);
+        Precision layerPrecision = precision.equals("double") ? Precision.DOUBLE : Precision.FLOAT;
+        Random random = new Random(0);
+        layer = new Layer(inputs, outputs, new Sigmoid(), 0.01, layerPrecision);
+        layer.setOptimizer(optimizer(optimizer));
+        layer.feedForward(MatrixBenchmark.randomMatrix(1, inputs, random, layerPrecision));
+        errorTerms = MatrixBenchmark.randomMatrix(1, outputs, random, layerPrecision);
+    }
+
+    private static Optimizer optimizer(String name) {
+        switch (name) {
+            case "sgd": return new SGD();
+            case "momentum": return new Momentum();
+            case "nesterov": return new Nesterov();
+            case "rmsprop": return new RMSProp();
+            case "adam": return new Adam();
+            default: throw new IllegalArgumentException("Unknown optimizer " + name);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void backpropagate() {
+        layer.backpropagate(errorTerms);
+    }
+
+    @Benchmark
+    public Matrix updateWeights() {
+        layer.updateWeights();
+        return layer.getWeights();
+    }
+}
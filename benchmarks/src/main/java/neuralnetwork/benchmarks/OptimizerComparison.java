@@ -0,0 +1,131 @@
+package neuralnetwork.benchmarks;
+
+import neuralnetwork.ActivationFunction;
+import neuralnetwork.Adam;
+import neuralnetwork.Dataset;
+import neuralnetwork.Matrix;
+import neuralnetwork.Momentum;
+import neuralnetwork.Nesterov;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.Optimizer;
+import neuralnetwork.RMSProp;
+import neuralnetwork.SGD;
+import neuralnetwork.Sigmoid;
+import neuralnetwork.Softmax;
+import neuralnetwork.Tanh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/* Trains the Iris example's network with each optimizer until the training loss falls to a target
+and reports the epochs and time that took. Every optimizer is tried at each of a range of
+learning rates and the fastest is reported. Run from the repository root (Iris is read from
+resources/iris.data):
+
+    java --add-modules jdk.incubator.vector -cp benchmarks/target/benchmarks.jar neuralnetwork.benchmarks.OptimizerComparison
+
+The loss is measured after every epoch but only training is timed. Every optimizer trains a
+throwaway network for a few hundred epochs first, so that all are compiled before any is timed */
+public class OptimizerComparison {
+
+    private static final double TARGET_LOSS = 0.01; // Mean square error over the training set
+    private static final int MAX_EPOCHS = 5000; // The Iris example's epoch count
+    private static final double[] LEARNING_RATES = {0.001, 0.003, 0.01, 0.03, 0.1};
+    private static final List<Integer> SIZES = List.of(4, 5, 5, 5, 3);
+    private static final List<ActivationFunction> ACTIVATIONS =
+            List.of(new Sigmoid(), new Tanh(), new Sigmoid(), new Softmax());
+
+    public static void main(String[] args) throws IOException {
+        Path cache = Files.createTempFile("iris", ".cache");
+        Dataset data;
+        try {
+            Dataset.convert(Path.of(System.getProperty("iris.data", "resources/iris.data")), cache, 4);
+            data = Dataset.load(cache);
+        } finally {
+            Files.deleteIfExists(cache);
+        }
+        Dataset train = data.subset(IntStream.range(0, data.size()).filter(row -> row % 50 < 35).toArray());
+        Dataset test = data.subset(IntStream.range(0, data.size()).filter(row -> row % 50 >= 35).toArray());
+        Matrix trainInputs = train.loadInputs();
+        Matrix trainOutputs = train.loadOutputs();
+        Matrix testInputs = test.loadInputs();
+        Matrix testOutputs = test.loadOutputs();
+
+        List<String> names = List.of("SGD", "Momentum", "Nesterov", "RMSProp", "Adam");
+        List<Supplier<Optimizer>> optimizers = List.of(SGD::new, Momentum::new, Nesterov::new, RMSProp::new, Adam::new);
+        for (Supplier<Optimizer> optimizer : optimizers) {
+            NeuralNetwork warmup = network(0.01, optimizer.get());
+            for (int epoch = 0; epoch < 300; epoch++)
+                trainEpoch(warmup, trainInputs, trainOutputs);
+        }
+
+        System.out.printf("Iris 4-5-5-5-3, batch 1, target training MSE %.2f, at most %d epochs%n", TARGET_LOSS, MAX_EPOCHS);
+        for (int index = 0; index < optimizers.size(); index++) {
+            Result best = null;
+            for (double learningRate : LEARNING_RATES) {
+                NeuralNetwork network = network(learningRate, optimizers.get(index).get());
+                Result result = trainToTarget(network, learningRate, trainInputs, trainOutputs);
+                result.testLoss = network.meanSquareError(testInputs, testOutputs);
+                System.out.printf("  %-8s rate %-5s %s%n", names.get(index), learningRate, result);
+                if (result.reached() && (best == null || result.nanoseconds < best.nanoseconds))
+                    best = result;
+            }
+            if (best != null)
+                System.out.printf("  %-8s best: rate %s%n", names.get(index), best.learningRate);
+        }
+    }
+
+    private static NeuralNetwork network(double learningRate, Optimizer optimizer) {
+        NeuralNetwork network = new NeuralNetwork(new ArrayList<>(SIZES), new ArrayList<>(ACTIVATIONS), learningRate);
+        network.setOptimizer(optimizer);
+        return network;
+    }
+
+    // Trains until the training loss reaches the target or the epochs run out
+    private static Result trainToTarget(NeuralNetwork network, double learningRate, Matrix inputs, Matrix outputs) {
+        Result result = new Result();
+        result.learningRate = learningRate;
+        while (result.epochs < MAX_EPOCHS) {
+            long start = System.nanoTime();
+            trainEpoch(network, inputs, outputs);
+            result.nanoseconds += System.nanoTime() - start;
+            result.epochs++;
+            result.trainLoss = network.meanSquareError(inputs, outputs);
+            if (result.trainLoss <= TARGET_LOSS)
+                break;
+        }
+        return result;
+    }
+
+    // One epoch of single-sample training over the data in order, as PrecisionComparison trains Iris
+    private static void trainEpoch(NeuralNetwork network, Matrix inputs, Matrix outputs) {
+        for (int row = 0; row < inputs.getRows(); row++) {
+            network.feedForward(inputs.view(row, 0, 1, inputs.getCols()));
+            network.backpropagate(outputs.view(row, 0, 1, outputs.getCols()));
+            network.updateWeights();
+        }
+    }
+
+    private static class Result {
+        double learningRate;
+        int epochs;
+        long nanoseconds; // Spent training, excluding the loss measured after each epoch
+        double trainLoss;
+        double testLoss;
+
+        boolean reached() {
+            return trainLoss <= TARGET_LOSS;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %5d epochs %8.1f ms   train MSE %.3e   test MSE %.3e",
+                    reached() ? "reached in" : "missed after", epochs, nanoseconds / 1e6, trainLoss, testLoss);
+        }
+    }
+}
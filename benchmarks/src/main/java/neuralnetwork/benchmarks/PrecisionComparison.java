@@ -0,0 +1,162 @@
+package neuralnetwork.benchmarks;
+
+import neuralnetwork.ActivationFunction;
+import neuralnetwork.Dataset;
+import neuralnetwork.Matrix;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.Precision;
+import neuralnetwork.Sigmoid;
+import neuralnetwork.Softmax;
+import neuralnetwork.Tanh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/* Trains the same network in double and in single precision from the same starting weights and
+reports how far the float results drift from the double ones and how much faster training is.
+Run from the repository root (Iris is read from resources/iris.data):
+
+    java --add-modules jdk.incubator.vector -cp benchmarks/target/benchmarks.jar neuralnetwork.benchmarks.PrecisionComparison
+
+Each case first trains throwaway copies for a few epochs so that both paths are compiled before
+they are timed. A process normally trains in one precision only, so running both in one JVM
+makes the shared code slightly slower than either would be alone */
+public class PrecisionComparison {
+
+    public static void main(String[] args) throws IOException {
+        compareIris();
+        compareSynthetic();
+    }
+
+    // The Iris example's topology, data split, learning rate and batch size
+    private static void compareIris() throws IOException {
+        Path cache = Files.createTempFile("iris", ".cache");
+        Dataset data;
+        try {
+            Dataset.convert(Path.of(System.getProperty("iris.data", "resources/iris.data")), cache, 4);
+            data = Dataset.load(cache);
+        } finally {
+            Files.deleteIfExists(cache);
+        }
+        Dataset train = data.subset(IntStream.range(0, data.size()).filter(row -> row % 50 < 35).toArray());
+        Dataset test = data.subset(IntStream.range(0, data.size()).filter(row -> row % 50 >= 35).toArray());
+        compare("Iris 4-5-5-5-3, batch 1, 5000 epochs",
+                List.of(4, 5, 5, 5, 3),
+                List.of(new Sigmoid(), new Tanh(), new Sigmoid(), new Softmax()),
+                0.01, 1, 5000,
+                train.loadInputs(), train.loadOutputs(), test.loadInputs(), test.loadOutputs());
+    }
+
+    /* 64 small Gaussian features labelled with the most active output of a fixed random "teacher"
+    network, so that the classes are learnable and accuracy is meaningful */
+    private static void compareSynthetic() {
+        ArrayList<ActivationFunction> teacherActivations = new ArrayList<>(List.of(new Tanh(), new Softmax()));
+        NeuralNetwork teacher = new NeuralNetwork(new ArrayList<>(List.of(64, 32, 10)), teacherActivations, 0);
+        Random random = new Random(1);
+        Matrix inputs = new Matrix(10240, 64);
+        for (int row = 0; row < inputs.getRows(); row++) {
+            for (int col = 0; col < inputs.getCols(); col++)
+                inputs.setElement(0.25 * random.nextGaussian(), row, col);
+        }
+        teacher.feedForward(inputs);
+        Matrix outputs = new Matrix(inputs.getRows(), 10);
+        for (int row = 0; row < inputs.getRows(); row++)
+            outputs.setElement(1, row, argmax(teacher.getOutput(), row));
+        compare("Synthetic 64-256-256-10, batch 32, 20 epochs",
+                List.of(64, 256, 256, 10),
+                List.of(new Sigmoid(), new Tanh(), new Softmax()),
+                0.2, 32, 20,
+                inputs.view(0, 0, 8192, 64), outputs.view(0, 0, 8192, 10),
+                inputs.view(8192, 0, 2048, 64), outputs.view(8192, 0, 2048, 10));
+    }
+
+    private static void compare(String name, List<Integer> sizes, List<ActivationFunction> activations,
+                                double learningRate, int batchSize, int epochs,
+                                Matrix trainInputs, Matrix trainOutputs, Matrix testInputs, Matrix testOutputs) {
+        System.out.println(name);
+        NeuralNetwork[] networks = new NeuralNetwork[2];
+        long[] nanoseconds = new long[2];
+        Precision[] precisions = {Precision.DOUBLE, Precision.FLOAT};
+        Matrix[] inputs = new Matrix[2];
+        Matrix[] outputs = new Matrix[2];
+        // Both paths are warmed up before either is timed, so each is compiled with the other in its profile
+        for (int index = 0; index < 2; index++) {
+            Precision precision = precisions[index];
+            networks[index] = new NeuralNetwork(new ArrayList<>(sizes), new ArrayList<>(activations),
+                    learningRate, precision);
+            // Data is converted up front, as a float pipeline would load it, so only training is timed
+            inputs[index] = trainInputs.copy(precision);
+            outputs[index] = trainOutputs.copy(precision);
+            NeuralNetwork warmup = new NeuralNetwork(networks[index]);
+            train(warmup, inputs[index], outputs[index], batchSize, Math.max(1, Math.min(epochs / 10, 5)));
+        }
+        for (int index = 0; index < 2; index++) {
+            long start = System.nanoTime();
+            train(networks[index], inputs[index], outputs[index], batchSize, epochs);
+            nanoseconds[index] = System.nanoTime() - start;
+        }
+
+        double[] errors = new double[2];
+        double[] accuracies = new double[2];
+        Matrix[] predictions = new Matrix[2];
+        for (int index = 0; index < 2; index++) {
+            errors[index] = networks[index].meanSquareError(testInputs, testOutputs);
+            predictions[index] = networks[index].getOutput().copy(Precision.DOUBLE);
+            accuracies[index] = accuracy(predictions[index], testOutputs);
+        }
+        double maxDrift = 0;
+        int agreements = 0;
+        for (int row = 0; row < testInputs.getRows(); row++) {
+            for (int col = 0; col < testOutputs.getCols(); col++) {
+                double drift = Math.abs(predictions[0].getElement(row, col) - predictions[1].getElement(row, col));
+                maxDrift = Math.max(maxDrift, drift);
+            }
+            if (argmax(predictions[0], row) == argmax(predictions[1], row))
+                agreements++;
+        }
+        for (int index = 0; index < 2; index++) {
+            System.out.printf("  %-6s train %8.1f ms   test MSE %.6e   accuracy %6.2f%%   parameters %d bytes%n",
+                    precisions[index], nanoseconds[index] / 1e6, errors[index], 100 * accuracies[index],
+                    networks[index].getParameterBytes());
+        }
+        System.out.printf("  speedup %.2fx   MSE drift %+.3e   max output drift %.3e   predictions agree %.2f%%%n%n",
+                (double) nanoseconds[0] / nanoseconds[1], errors[1] - errors[0], maxDrift,
+                100.0 * agreements / testInputs.getRows());
+    }
+
+    // Runs the given number of epochs of mini-batch training over the data in order
+    private static void train(NeuralNetwork network, Matrix inputs, Matrix outputs, int batchSize, int epochs) {
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            for (int start = 0; start < inputs.getRows(); start += batchSize) {
+                int rows = Math.min(batchSize, inputs.getRows() - start);
+                network.feedForward(inputs.view(start, 0, rows, inputs.getCols()));
+                network.backpropagate(outputs.view(start, 0, rows, outputs.getCols()));
+                network.updateWeights();
+            }
+        }
+    }
+
+    // Fraction of rows whose largest prediction is the expected class
+    private static double accuracy(Matrix predictions, Matrix expected) {
+        int correct = 0;
+        for (int row = 0; row < predictions.getRows(); row++) {
+            if (argmax(predictions, row) == argmax(expected, row))
+                correct++;
+        }
+        return (double) correct / predictions.getRows();
+    }
+
+    private static int argmax(Matrix matrix, int row) {
+        int best = 0;
+        for (int col = 1; col < matrix.getCols(); col++) {
+            if (matrix.getElement(row, col) > matrix.getElement(row, best))
+                best = col;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,59 @@
+package neuralnetwork.benchmarks;
+
+import neuralnetwork.Layer;
+import neuralnetwork.Matrix;
+import neuralnetwork.SparseMatrix;
+import neuralnetwork.Tanh;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/* A full training step (forward, backward and update) of a 4096:64 tanh layer with batches of 32,
+given mostly-zero input as a dense Matrix or as a SparseMatrix */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class SparseBenchmark {
+
+    @Param({"0.001", "0.01", "0.05"})
+    public double density; // Fraction of inputs that are non-zero
+
+    @Param({"dense", "sparse"})
+    public String input;
+
+    private Layer layer;
+    private Matrix denseInput;
+    private SparseMatrix sparseInput;
+    private Matrix errorTerms;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        layer = new Layer(4096, 64, new Tanh(), 0.01);
+        denseInput = new Matrix(32, 4096);
+        for (int row = 0; row < denseInput.getRows(); row++) {
+            for (int col = 0; col < denseInput.getCols(); col++) {
+                if (random.nextDouble() < density)
+                    denseInput.setElement(random.nextDouble(), row, col);
+            }
+        }
+        if (input.equals("sparse"))
+            sparseInput = SparseMatrix.fromDense(denseInput);
+        errorTerms = MatrixBenchmark.randomMatrix(32, 64, random);
+    }
+
+    @Benchmark
+    public Matrix step() {
+        if (sparseInput != null)
+            layer.feedForward(sparseInput);
+        else
+            layer.feedForward(denseInput);
+        layer.backpropagate(errorTerms);
+        layer.updateWeights();
+        return layer.getOutputNodes();
+    }
+}
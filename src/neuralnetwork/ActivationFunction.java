@@ -0,0 +1,24 @@
+package neuralnetwork;
+
+// All activation functions implement this as part of Strategy pattern
+public interface ActivationFunction {
+
+    // The activation function
+    default Matrix function(Matrix x) {
+        Matrix result = new Matrix(x.getRows(), x.getCols(), x.getPrecision());
+        function(x, result);
+        return result;
+    }
+
+    /* Applies the activation function to 'input', writing into 'output' (which may be 'input'
+    itself). Both must be heap matrices of the same precision, which is the precision the function
+    computes in */
+    void function(Matrix input, Matrix output);
+
+    // The derivation of the activation function, given the value the function produced
+    double derivative(double x);
+
+    /* Writes the derivative at every element of a layer's output into 'result' (which may be
+    'output' itself), so a backpropagation step evaluates it once per node */
+    void derivative(Matrix output, Matrix result);
+}
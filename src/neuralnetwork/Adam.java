@@ -0,0 +1,71 @@
+package neuralnetwork;
+
+import java.util.Arrays;
+
+/* Adam: each parameter keeps decaying means of its deltas and of their squares, corrected for
+starting at zero, and moves by the learning rate times the first divided by the root of the
+second. This is momentum with RMSProp's per-parameter step size. As deltas already include the
+learning rate, the usual formula is applied with epsilon scaled to match */
+public class Adam implements Optimizer {
+
+    private static final Kernels kernels = Kernels.get();
+    private final double beta1; // Decay of the mean of the deltas
+    private final double beta2; // Decay of the mean of the squared deltas
+    private final double epsilon; // Added to the root mean square gradient so it is never zero
+
+    public Adam() {
+        this(0.9, 0.999, 1e-8);
+    }
+
+    public Adam(double beta1, double beta2, double epsilon) {
+        if (!(beta1 >= 0 && beta1 < 1) || !(beta2 >= 0 && beta2 < 1))
+            throw new IllegalArgumentException("Decay rates must be at least 0 and less than 1");
+        if (!(epsilon > 0))
+            throw new IllegalArgumentException("Epsilon must be positive");
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public int getStateCount() {
+        return 2;
+    }
+
+    @Override
+    public void update(double[] parameters, int parameterOffset, double[] deltas, double[][] state, int offset,
+                       int length, double learningRate, long step) {
+        // With no learning rate every delta is zero, and the step below would divide zero by zero
+        if (learningRate == 0) {
+            Arrays.fill(deltas, offset, offset + length, 0);
+            return;
+        }
+        // Bias corrections are the same for every parameter, so are worked out once per call
+        kernels.adam(beta1, beta2, learningRate / (1 - Math.pow(beta1, step)), 1 / (1 - Math.pow(beta2, step)),
+                learningRate * epsilon, parameters, parameterOffset, deltas, state[0], state[1], offset, length);
+    }
+
+    @Override
+    public void update(float[] parameters, int parameterOffset, float[] deltas, float[][] state, int offset,
+                       int length, double learningRate, long step) {
+        if (learningRate == 0) {
+            Arrays.fill(deltas, offset, offset + length, 0);
+            return;
+        }
+        kernels.adam((float) beta1, (float) beta2, (float) (learningRate / (1 - Math.pow(beta1, step))),
+                (float) (1 / (1 - Math.pow(beta2, step))), (float) (learningRate * epsilon), parameters,
+                parameterOffset, deltas, state[0], state[1], offset, length);
+    }
+
+    public double getBeta1() {
+        return beta1;
+    }
+
+    public double getBeta2() {
+        return beta2;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+}
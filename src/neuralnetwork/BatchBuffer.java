@@ -0,0 +1,51 @@
+package neuralnetwork;
+
+/* Preallocated row-major storage for per-sample values with a fixed number of columns. It hands
+out a view over the first n rows for any batch size n, creating each view once so that a
+training loop that cycles through the same batch sizes stops allocating after its first epoch */
+public class BatchBuffer {
+
+    private final int cols; // Number of values stored per sample
+    private final Precision precision; // Precision of the values and of the views handed out
+    private Matrix storage; // Backing storage for 'capacity' rows
+    private Matrix[] views; // views[n] covers the first n rows of storage, created on first use
+
+    public BatchBuffer(int cols, int initialCapacity) {
+        this(cols, initialCapacity, Precision.DOUBLE);
+    }
+
+    public BatchBuffer(int cols, int initialCapacity, Precision precision) {
+        if (cols < 0 || initialCapacity < 1)
+            throw new IllegalArgumentException("Buffer must hold at least one row");
+        this.cols = cols;
+        this.precision = precision;
+        this.storage = new Matrix(initialCapacity, cols, precision);
+        this.views = new Matrix[initialCapacity + 1];
+    }
+
+    // Returns a matrix over the first 'rows' rows of the buffer, growing it if needed
+    public Matrix rows(int rows) {
+        if (rows < 1)
+            throw new IllegalArgumentException("Batch must contain at least one row");
+        if (rows >= views.length) {
+            // Grows to exactly the requested size; views of the old storage are discarded
+            storage = new Matrix(rows, cols, precision);
+            views = new Matrix[rows + 1];
+        }
+        Matrix view = views[rows];
+        if (view == null) {
+            view = storage.view(0, 0, rows, cols);
+            views[rows] = view;
+        }
+        return view;
+    }
+
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    // Getter for the number of rows that fit without growing
+    public int getCapacity() {
+        return views.length - 1;
+    }
+}
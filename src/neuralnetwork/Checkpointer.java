@@ -0,0 +1,72 @@
+package neuralnetwork;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* Periodically saves a network during training without stalling the training loop. On a
+checkpoint epoch the training thread only copies the parameters; the file is written by a
+background thread. If the previous write is still running the checkpoint is skipped rather than
+queued, so a slow disk can never build up a backlog of snapshots */
+public class Checkpointer implements AutoCloseable {
+
+    private final Path file; // Each checkpoint replaces the previous one
+    private final int interval; // Epochs between checkpoints
+    private final ExecutorService writer;
+    private Future<?> pendingWrite; // Most recent write, possibly still running
+
+    public Checkpointer(Path file, int interval) {
+        if (interval < 1)
+            throw new IllegalArgumentException("Checkpoint interval must be at least one epoch");
+        this.file = file;
+        this.interval = interval;
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /* Called by the training loop after each epoch; starts a background save every 'interval'
+    epochs. Rethrows the failure of an earlier write, if any */
+    public void onEpoch(NeuralNetwork network, int epoch) {
+        if ((epoch + 1) % interval != 0)
+            return;
+        if (pendingWrite != null) {
+            if (!pendingWrite.isDone())
+                return;
+            checkWrite(pendingWrite);
+        }
+        // Only the weights and biases are copied, to the heap, where the writer can read them
+        ModelCheckpoint.Snapshot snapshot = ModelCheckpoint.snapshot(network);
+        pendingWrite = writer.submit(() -> {
+            try {
+                ModelCheckpoint.save(snapshot, file, snapshot.getPrecision());
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+    }
+
+    // Waits for any write in progress and stops the background thread
+    @Override
+    public void close() {
+        writer.shutdown();
+        if (pendingWrite != null)
+            checkWrite(pendingWrite);
+    }
+
+    private static void checkWrite(Future<?> write) {
+        try {
+            write.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Checkpoint write failed", exception.getCause());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package neuralnetwork;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* Hands out a data set's samples as mini-batches, in a freshly shuffled order each epoch if
+requested. While the caller trains on one batch a background thread gathers the next into a
+second set of buffers, so reading from the memory-mapped cache overlaps with computation. A
+batch's matrices are only valid until the following call to next(), after which they are refilled */
+public class DataLoader implements AutoCloseable {
+
+    private final Dataset dataset;
+    private final int batchSize;
+    private final boolean shuffle; // Whether each epoch visits samples in a new random order
+    private final Random random;
+    private final int[] order; // Sample order for the current epoch
+    private final Batch[] batches = new Batch[2]; // Alternately filled by the prefetch thread
+    private final ExecutorService prefetcher; // Null when batches are gathered on the caller's thread
+    private Future<Batch> pending; // Batch being prefetched, or null at the end of the epoch
+    private int nextStart; // Position in 'order' of the first sample of the batch after 'pending'
+    private int nextSlot; // Which of 'batches' the next prefetch fills
+
+    // Inputs and expected outputs of one mini-batch, views into the loader's reusable buffers
+    public static final class Batch {
+        private final BatchBuffer inputBuffer;
+        private final BatchBuffer outputBuffer;
+        private Matrix inputs;
+        private Matrix outputs;
+
+        private Batch(int features, int classes, int capacity) {
+            inputBuffer = new BatchBuffer(features, capacity);
+            outputBuffer = new BatchBuffer(classes, capacity);
+        }
+
+        public Matrix getInputs() {
+            return inputs;
+        }
+
+        public Matrix getOutputs() {
+            return outputs;
+        }
+    }
+
+    public DataLoader(Dataset dataset, int batchSize, boolean shuffle, long seed) {
+        this(dataset, batchSize, shuffle, seed, true);
+    }
+
+    /* As above, optionally without the background thread. Very small batches are gathered faster
+    than they can be handed between threads, so they are better loaded in line */
+    public DataLoader(Dataset dataset, int batchSize, boolean shuffle, long seed, boolean prefetch) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batches must contain at least one sample");
+        if (dataset.size() < 1)
+            throw new IllegalArgumentException("Data set is empty");
+        this.dataset = dataset;
+        this.batchSize = batchSize;
+        this.shuffle = shuffle;
+        this.random = new Random(seed);
+        this.order = dataset.identityOrder();
+        for (int slot = 0; slot < batches.length; slot++)
+            batches[slot] = new Batch(dataset.getFeatureCount(), dataset.getClassCount(), Math.min(batchSize, dataset.size()));
+        prefetcher = !prefetch ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Reshuffles if enabled and starts prefetching the epoch's first batch
+    public void startEpoch() {
+        // An abandoned prefetch from the previous epoch must not write into a buffer being reused
+        if (pending != null)
+            await(pending);
+        if (shuffle) {
+            // Fisher-Yates shuffle
+            for (int index = order.length - 1; index > 0; index--) {
+                int swap = random.nextInt(index + 1);
+                int value = order[index];
+                order[index] = order[swap];
+                order[swap] = value;
+            }
+        }
+        nextStart = 0;
+        nextSlot = 0;
+        pending = prefetch();
+    }
+
+    // Whether the current epoch has batches left
+    public boolean hasNext() {
+        return pending != null;
+    }
+
+    // Waits for the prefetched batch, starts gathering the one after it, and returns it
+    public Batch next() {
+        if (pending == null)
+            throw new IllegalStateException("No batches left in this epoch");
+        Batch batch = await(pending);
+        // The other buffer held the batch returned last time, which the caller has finished with
+        pending = nextStart < order.length ? prefetch() : null;
+        return batch;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    // Number of batches per epoch
+    public int getBatchCount() {
+        return (dataset.size() + batchSize - 1) / batchSize;
+    }
+
+    @Override
+    public void close() {
+        if (prefetcher != null)
+            prefetcher.shutdownNow();
+    }
+
+    // Gathers the batch starting at 'nextStart' into the next buffer, on the prefetch thread if there is one
+    private Future<Batch> prefetch() {
+        Batch batch = batches[nextSlot];
+        int start = nextStart;
+        int count = Math.min(batchSize, order.length - start);
+        nextStart += count;
+        nextSlot ^= 1;
+        if (prefetcher == null) {
+            fill(batch, start, count);
+            return CompletableFuture.completedFuture(batch);
+        }
+        return prefetcher.submit(() -> fill(batch, start, count));
+    }
+
+    private Batch fill(Batch batch, int start, int count) {
+        batch.inputs = batch.inputBuffer.rows(count);
+        batch.outputs = batch.outputBuffer.rows(count);
+        dataset.gather(order, start, batch.inputs, batch.outputs);
+        return batch;
+    }
+
+    private static Batch await(Future<Batch> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a batch", exception);
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Failed to load a batch", exception.getCause());
+        }
+    }
+}
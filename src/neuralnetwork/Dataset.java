@@ -0,0 +1,329 @@
+package neuralnetwork;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/* Classification data set read from a memory-mapped columnar binary cache, so its size is
+limited by disk rather than heap. The cache is built once from a CSV file in which every column
+is numeric apart from one holding the class name. Its layout, all little-endian, is
+
+    int magic ("JNND"), int version, long rows, int feature count, int class count
+    per class: int byte length, UTF-8 name
+    zero padding to a multiple of 8 bytes
+    per feature: 'rows' doubles
+    'rows' ints holding each row's class index
+
+Classes are numbered in order of first appearance in the CSV */
+public class Dataset {
+
+    private static final int MAGIC = 0x444E4E4A; // "JNND" when read as little-endian bytes
+    private static final int VERSION = 1;
+    private static final int SEGMENT_BITS = 26; // Each mapping covers 2^26 rows of a column, at most 512MB
+    private static final int SEGMENT_ROWS = 1 << SEGMENT_BITS;
+    private static final int COLUMN_BUFFER_BYTES = 1 << 14; // Per-column write buffer used when converting
+
+    private final int rows; // Rows in the underlying cache
+    private final int features; // Number of input values per sample
+    private final List<String> classNames; // Indexed by class number
+    private final DoubleBuffer[][] featureSegments; // Per feature, the mappings of consecutive row ranges
+    private final IntBuffer[] labelSegments; // Mappings of consecutive row ranges of the class column
+    private final int[] selection; // Cache rows this data set consists of, or null for all of them
+
+    private Dataset(int rows, int features, List<String> classNames, DoubleBuffer[][] featureSegments,
+                    IntBuffer[] labelSegments, int[] selection) {
+        this.rows = rows;
+        this.features = features;
+        this.classNames = classNames;
+        this.featureSegments = featureSegments;
+        this.labelSegments = labelSegments;
+        this.selection = selection;
+    }
+
+    /* Opens the cache for a CSV file, first (re)building it if it is missing or older than the
+    CSV. 'labelColumn' is the zero-based column holding the class name */
+    public static Dataset open(Path csv, Path cache, int labelColumn) throws IOException {
+        if (!Files.exists(cache) || Files.getLastModifiedTime(cache).compareTo(Files.getLastModifiedTime(csv)) < 0)
+            convert(csv, cache, labelColumn);
+        return load(cache);
+    }
+
+    /* Streams a CSV file into a columnar cache. The first pass counts rows and collects class
+    names; the second writes each value straight into its column's region of the file. Blank
+    lines are skipped. Only one line of the CSV is held in memory at a time */
+    public static void convert(Path csv, Path cache, int labelColumn) throws IOException {
+        // First pass: shape of the data and the class names
+        int columns = -1;
+        long rowCount = 0;
+        ArrayList<String> classNames = new ArrayList<>();
+        HashMap<String, Integer> classNumbers = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank())
+                    continue;
+                String[] fields = line.split(",", -1);
+                if (columns == -1)
+                    columns = fields.length;
+                if (fields.length != columns)
+                    throw new IOException("Line " + lineNumber + " has " + fields.length + " columns, expected " + columns);
+                if (labelColumn < 0 || labelColumn >= columns)
+                    throw new IOException("Label column " + labelColumn + " is out of range");
+                String label = fields[labelColumn].trim();
+                if (!classNumbers.containsKey(label)) {
+                    classNumbers.put(label, classNames.size());
+                    classNames.add(label);
+                }
+                rowCount++;
+            }
+        }
+        if (columns == -1)
+            throw new IOException("CSV file is empty: " + csv);
+        if (rowCount > Integer.MAX_VALUE)
+            throw new IOException("Too many rows: " + rowCount);
+        int rows = (int) rowCount;
+        int features = columns - 1;
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize(classNames)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(rows).putInt(features).putInt(classNames.size());
+        for (String name : classNames) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            header.putInt(bytes.length).put(bytes);
+        }
+        header.position(header.capacity()); // Remaining bytes are the zero padding
+        header.flip();
+
+        // Second pass: each column gets its own write buffer and file position
+        Path temporary = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            while (header.hasRemaining())
+                channel.write(header);
+            ByteBuffer[] buffers = new ByteBuffer[columns];
+            long[] positions = new long[columns];
+            long position = header.capacity();
+            for (int column = 0, feature = 0; column < columns; column++) {
+                if (column == labelColumn)
+                    continue;
+                buffers[column] = ByteBuffer.allocate(COLUMN_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                positions[column] = position + (long) feature * rows * Double.BYTES;
+                feature++;
+            }
+            buffers[labelColumn] = ByteBuffer.allocate(COLUMN_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            positions[labelColumn] = position + (long) features * rows * Double.BYTES;
+
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank())
+                    continue;
+                String[] fields = line.split(",", -1);
+                for (int column = 0; column < columns; column++) {
+                    ByteBuffer buffer = buffers[column];
+                    if (buffer.remaining() < Double.BYTES)
+                        positions[column] += flush(channel, buffer, positions[column]);
+                    if (column == labelColumn) {
+                        buffer.putInt(classNumbers.get(fields[column].trim()));
+                    } else {
+                        try {
+                            buffer.putDouble(Double.parseDouble(fields[column].trim()));
+                        } catch (NumberFormatException exception) {
+                            throw new IOException("Line " + lineNumber + " column " + column + " is not a number");
+                        }
+                    }
+                }
+            }
+            for (int column = 0; column < columns; column++)
+                flush(channel, buffers[column], positions[column]);
+            channel.force(false);
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(temporary);
+            throw exception;
+        }
+        Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Maps a cache written by convert
+    public static Dataset load(Path cache) throws IOException {
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            ByteBuffer fixed = ByteBuffer.allocate(6 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(fixed, 0);
+            fixed.flip();
+            if (fixed.remaining() < fixed.capacity() || fixed.getInt() != MAGIC)
+                throw new IOException("Not a data set cache: " + cache);
+            int version = fixed.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported data set cache version " + version);
+            long rowCount = fixed.getLong();
+            int features = fixed.getInt();
+            int classCount = fixed.getInt();
+            if (rowCount < 0 || rowCount > Integer.MAX_VALUE || features < 0 || classCount < 1)
+                throw new IOException("Corrupt data set cache header");
+            int rows = (int) rowCount;
+
+            // Class names follow the fixed part of the header
+            ArrayList<String> classNames = new ArrayList<>();
+            long position = fixed.capacity();
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int index = 0; index < classCount; index++) {
+                length.clear();
+                channel.read(length, position);
+                length.flip();
+                ByteBuffer name = ByteBuffer.allocate(length.getInt());
+                channel.read(name, position + Integer.BYTES);
+                classNames.add(new String(name.array(), StandardCharsets.UTF_8));
+                position += Integer.BYTES + name.capacity();
+            }
+            long dataStart = headerSize(classNames);
+            long expectedSize = dataStart + (long) features * rows * Double.BYTES + (long) rows * Integer.BYTES;
+            if (channel.size() != expectedSize)
+                throw new IOException("Data set cache size does not match its header");
+
+            int segments = (rows + SEGMENT_ROWS - 1) / SEGMENT_ROWS;
+            DoubleBuffer[][] featureSegments = new DoubleBuffer[features][segments];
+            for (int feature = 0; feature < features; feature++) {
+                long columnStart = dataStart + (long) feature * rows * Double.BYTES;
+                for (int segment = 0; segment < segments; segment++) {
+                    long segmentRows = Math.min(SEGMENT_ROWS, rows - (long) segment * SEGMENT_ROWS);
+                    featureSegments[feature][segment] = channel.map(FileChannel.MapMode.READ_ONLY,
+                            columnStart + (long) segment * SEGMENT_ROWS * Double.BYTES, segmentRows * Double.BYTES)
+                            .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                }
+            }
+            IntBuffer[] labelSegments = new IntBuffer[segments];
+            long labelStart = dataStart + (long) features * rows * Double.BYTES;
+            for (int segment = 0; segment < segments; segment++) {
+                long segmentRows = Math.min(SEGMENT_ROWS, rows - (long) segment * SEGMENT_ROWS);
+                labelSegments[segment] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        labelStart + (long) segment * SEGMENT_ROWS * Integer.BYTES, segmentRows * Integer.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+            return new Dataset(rows, features, List.copyOf(classNames), featureSegments, labelSegments, null);
+        }
+    }
+
+    // Data set made of the given rows of this one, in the given order; shares the same mapping
+    public Dataset subset(int[] rowIndices) {
+        int[] selected = new int[rowIndices.length];
+        for (int index = 0; index < rowIndices.length; index++) {
+            if (rowIndices[index] < 0 || rowIndices[index] >= size())
+                throw new IndexOutOfBoundsException("Row out of range");
+            selected[index] = cacheRow(rowIndices[index]);
+        }
+        return new Dataset(rows, features, classNames, featureSegments, labelSegments, selected);
+    }
+
+    // Number of samples
+    public int size() {
+        return selection == null ? rows : selection.length;
+    }
+
+    public int getFeatureCount() {
+        return features;
+    }
+
+    public int getClassCount() {
+        return classNames.size();
+    }
+
+    public List<String> getClassNames() {
+        return classNames;
+    }
+
+    public double getFeature(int row, int feature) {
+        int cacheRow = cacheRow(row);
+        return featureSegments[feature][cacheRow >>> SEGMENT_BITS].get(cacheRow & (SEGMENT_ROWS - 1));
+    }
+
+    // Class number of a sample
+    public int getLabel(int row) {
+        int cacheRow = cacheRow(row);
+        return labelSegments[cacheRow >>> SEGMENT_BITS].get(cacheRow & (SEGMENT_ROWS - 1));
+    }
+
+    /* Copies samples order[start], ..., order[start + n - 1], where n is the number of rows of
+    'inputs', into 'inputs' (one row of features each) and 'outputs' (one-hot class vectors).
+    Reads go column by column to follow the cache layout */
+    public void gather(int[] order, int start, Matrix inputs, Matrix outputs) {
+        int count = inputs.getRows();
+        if (inputs.getCols() != features || outputs.getRows() != count || outputs.getCols() != getClassCount())
+            throw new IllegalArgumentException("Batch matrices do not match the data set");
+        for (int feature = 0; feature < features; feature++) {
+            DoubleBuffer[] segments = featureSegments[feature];
+            for (int index = 0; index < count; index++) {
+                int cacheRow = cacheRow(order[start + index]);
+                inputs.setElement(segments[cacheRow >>> SEGMENT_BITS].get(cacheRow & (SEGMENT_ROWS - 1)), index, feature);
+            }
+        }
+        outputs.fill(0.0);
+        for (int index = 0; index < count; index++)
+            outputs.setElement(1.0, index, getLabel(order[start + index]));
+    }
+
+    // Copies every sample's features into a new heap matrix, for data sets small enough to hold in memory
+    public Matrix loadInputs() {
+        Matrix inputs = new Matrix(size(), features);
+        for (int feature = 0; feature < features; feature++)
+            for (int row = 0; row < size(); row++)
+                inputs.setElement(getFeature(row, feature), row, feature);
+        return inputs;
+    }
+
+    // Copies every sample's one-hot class vector into a new heap matrix
+    public Matrix loadOutputs() {
+        Matrix outputs = new Matrix(size(), getClassCount());
+        for (int row = 0; row < size(); row++)
+            outputs.setElement(1.0, row, getLabel(row));
+        return outputs;
+    }
+
+    // Sample numbers 0, 1, ..., size() - 1
+    public int[] identityOrder() {
+        int[] order = new int[size()];
+        for (int row = 0; row < order.length; row++)
+            order[row] = row;
+        return order;
+    }
+
+    private int cacheRow(int row) {
+        if (selection != null)
+            return selection[row];
+        if (row < 0 || row >= rows)
+            throw new IndexOutOfBoundsException("Row out of range");
+        return row;
+    }
+
+    // Bytes before the first feature value, i.e. the header rounded up to a multiple of 8
+    private static int headerSize(List<String> classNames) {
+        int bytes = 6 * Integer.BYTES;
+        for (String name : classNames)
+            bytes += Integer.BYTES + name.getBytes(StandardCharsets.UTF_8).length;
+        return (bytes + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    // Writes out a column's buffered values at its position and returns the number of bytes written
+    private static int flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int written = 0;
+        while (buffer.hasRemaining())
+            written += channel.write(buffer, position + written);
+        buffer.clear();
+        return written;
+    }
+}
@@ -0,0 +1,56 @@
+package neuralnetwork;
+
+/* Approximations of the transcendental functions used by the activation functions, trading a
+small, bounded error for speed. Bounds below were measured against Math.exp and Math.tanh over
+a dense sweep of the stated ranges */
+public final class FastMath {
+
+    private static final int TABLE_BITS = 6; // The table holds 2^(j/64) for j in [0, 64)
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final double[] powersOfTwo = new double[TABLE_SIZE];
+    private static final double LOG2_E_SCALED = TABLE_SIZE / Math.log(2); // Converts x to units of ln(2) / 64
+    private static final double LN2_SCALED_HIGH = 0x1.62e42fefa0000p-7; // ln(2) / 64 split in two so that
+    private static final double LN2_SCALED_LOW = 0x1.cf79abc9e3b3ap-46; // n * high is exact for the n used here
+    private static final double MAX_EXPONENT = 709.0; // exp overflows above roughly this
+    private static final double MIN_EXPONENT = -708.0; // exp falls into subnormals below roughly this
+
+    static {
+        for (int j = 0; j < TABLE_SIZE; j++)
+            powersOfTwo[j] = Math.pow(2, (double) j / TABLE_SIZE);
+    }
+
+    private FastMath() {
+    }
+
+    /* e^x with relative error below 4e-11 for x in [-708, 709]. Larger arguments saturate to
+    infinity and smaller ones to zero. Writes x = (64k + j) * ln(2) / 64 + r with |r| <= ln(2) / 128,
+    looks up 2^(j/64), scales by 2^k through the exponent bits and uses a cubic for e^r */
+    public static double exp(double x) {
+        if (x > MAX_EXPONENT)
+            return Double.POSITIVE_INFINITY;
+        if (x < MIN_EXPONENT)
+            return 0.0;
+        if (x != x) // NaN
+            return x;
+        long n = Math.round(x * LOG2_E_SCALED);
+        double r = (x - n * LN2_SCALED_HIGH) - n * LN2_SCALED_LOW;
+        int j = (int) (n & (TABLE_SIZE - 1));
+        long k = n >> TABLE_BITS; // Arithmetic shift rounds towards negative infinity
+        double expR = 1 + r * (1 + r * (0.5 + r * (1.0 / 6)));
+        double scale = Double.longBitsToDouble((k + 1023) << 52);
+        return scale * powersOfTwo[j] * expR;
+    }
+
+    // tanh(x) with absolute error below 2e-11 everywhere, computed as 1 - 2 / (e^2x + 1)
+    public static double tanh(double x) {
+        // Evaluated on |x| so that the subtraction never cancels for negative arguments
+        double magnitude = Math.abs(x);
+        double result = 1 - 2 / (exp(2 * magnitude) + 1);
+        return x < 0 ? -result : result;
+    }
+
+    // Logistic function 1 / (1 + e^-x) with absolute error below 1e-11 everywhere
+    public static double sigmoid(double x) {
+        return 1 / (1 + exp(-x));
+    }
+}
@@ -0,0 +1,323 @@
+package neuralnetwork;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/* General matrix multiply engine computing C = alpha * op(A) * op(B) (+ C), where op optionally
+transposes its operand. All three matrices must have the same precision. Large products are tiled
+so a packed panel of the right-hand operand stays in cache, and are split over blocks of the output
+on a ForkJoinPool above a size threshold. Off-heap operands are always tiled: B is packed from
+native memory and each row segment of C is staged in an array while the panel is applied to it.
+Products involving memory in a confined scope are never split, as only the scope's owner thread
+may read it */
+public class Gemm implements AutoCloseable {
+
+    private static final int PANEL_ROWS = 128; // Rows of op(B) packed into one panel (the k dimension)
+    private static final int PANEL_COLS = 256; // Columns of op(B) packed into one panel (the n dimension)
+    private static final int BLOCK_ROWS = 64; // Rows of the output updated against one packed panel
+    private static final long PACKING_THRESHOLD = 32L * 32 * 32; // Products smaller than this are not tiled
+    private static final long PARALLEL_THRESHOLD = 128L * 128 * 128; // Products smaller than this stay on one thread
+    private static final long LEAF_SIZE = 64L * 64 * 64; // Work below which a parallel task stops splitting
+
+    // Reused packing buffer and product description so that steady-state multiplications do not allocate
+    private static final ThreadLocal<double[]> panels = ThreadLocal.withInitial(
+            () -> new double[PANEL_ROWS * PANEL_COLS]
+    );
+    private static final ThreadLocal<float[]> floatPanels = ThreadLocal.withInitial(
+            () -> new float[PANEL_ROWS * PANEL_COLS]
+    );
+    private static final ThreadLocal<double[]> stagedRows = ThreadLocal.withInitial(() -> new double[PANEL_COLS]);
+    private static final ThreadLocal<float[]> stagedFloatRows = ThreadLocal.withInitial(() -> new float[PANEL_COLS]);
+    private static final ThreadLocal<Product> serialProducts = ThreadLocal.withInitial(Product::new);
+    private static final Kernels kernels = Kernels.get(); // Row update at the heart of both kernels
+
+    private static final Gemm defaultInstance = new Gemm(ForkJoinPool.commonPool());
+
+    private final ForkJoinPool pool; // Null when every product is computed on the calling thread
+    private final boolean ownsPool; // Whether close() should shut the pool down
+
+    // Engine that computes every product on the calling thread
+    public Gemm() {
+        this(null, false);
+    }
+
+    /* Engine that splits large products across a dedicated pool of the given number of threads,
+    shut down by close() */
+    public Gemm(int parallelism) {
+        this(parallelism > 1 ? new ForkJoinPool(parallelism) : null, true);
+    }
+
+    // Engine that splits large products across the given pool, which is left running by close()
+    public Gemm(ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    private Gemm(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    // Engine used by Matrix when the caller does not supply one; runs on the common pool
+    public static Gemm getDefault() {
+        return defaultInstance;
+    }
+
+    // Number of threads large products may be split across
+    public int getParallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    // Shuts down the pool if this engine created it
+    @Override
+    public void close() {
+        if (ownsPool && pool != null)
+            pool.shutdown();
+    }
+
+    /* Computes c = alpha * op(a) * op(b), adding to the existing contents of c if 'accumulate'
+    is set. 'c' must not share storage with either operand */
+    public void multiply(Matrix a, boolean transposeA, Matrix b, boolean transposeB,
+                         double alpha, boolean accumulate, Matrix c) {
+        long work = (long) (transposeA ? a.getCols() : a.getRows()) * c.getCols() * (transposeA ? a.getRows() : a.getCols());
+        // Pool threads cannot read memory confined to the calling thread
+        if (work < PARALLEL_THRESHOLD || pool == null || pool.getParallelism() < 2
+                || isConfined(a) || isConfined(b) || isConfined(c)) {
+            Product product = serialProducts.get().set(a, transposeA, b, transposeB, alpha, c);
+            if (!accumulate)
+                c.fill(0.0);
+            product.compute(0, product.m, 0, product.n);
+            product.clear();
+            return;
+        }
+        // Tasks on other threads read the description, so parallel products get their own
+        Product product = new Product().set(a, transposeA, b, transposeB, alpha, c);
+        if (!accumulate)
+            c.fill(0.0);
+        if (ForkJoinTask.getPool() == pool) {
+            // Already running inside the pool, so split in this task rather than submitting
+            new Block(product, 0, product.m, 0, product.n).invoke();
+        } else {
+            pool.invoke(new Block(product, 0, product.m, 0, product.n));
+        }
+    }
+
+    private static boolean isConfined(Matrix matrix) {
+        NativeStorage storage = matrix.getStorage();
+        return storage != null && storage.isConfined();
+    }
+
+    // Shapes, storage and strides of one product, with the serial kernels that compute blocks of it
+    private static final class Product {
+        private double[] a, b, c;
+        private float[] floatA, floatB, floatC; // Used instead of a, b and c for single-precision products
+        private boolean single; // Operands hold floats
+        private NativeStorage memoryA, memoryB, memoryC; // Used instead of the arrays for off-heap operands
+        private int aOffset, aRowStep, aColStep; // Position of op(A)(i, k) is aOffset + i * aRowStep + k * aColStep
+        private int bOffset, bRowStep, bColStep; // Position of op(B)(k, j) is bOffset + k * bRowStep + j * bColStep
+        private int cOffset, cStride;
+        private int m, n, k; // op(A) is m x k, op(B) is k x n and C is m x n
+        private double alpha;
+
+        // Fills in the description of a product, checking the operands are compatible
+        Product set(Matrix aMatrix, boolean transposeA, Matrix bMatrix, boolean transposeB, double alpha, Matrix cMatrix) {
+            int m = transposeA ? aMatrix.getCols() : aMatrix.getRows();
+            int k = transposeA ? aMatrix.getRows() : aMatrix.getCols();
+            int bRows = transposeB ? bMatrix.getCols() : bMatrix.getRows();
+            int n = transposeB ? bMatrix.getRows() : bMatrix.getCols();
+            // Checks if matrices are right dimensions to be multiplied
+            if (k != bRows)
+                throw new IllegalArgumentException("Invalid matrix dimensions");
+            if (cMatrix.getRows() != m || cMatrix.getCols() != n)
+                throw new IllegalArgumentException("Result matrix has wrong dimensions");
+            Precision precision = cMatrix.getPrecision();
+            if (aMatrix.getPrecision() != precision || bMatrix.getPrecision() != precision)
+                throw new IllegalArgumentException("Matrices must have the same precision");
+            single = precision == Precision.FLOAT;
+            memoryA = aMatrix.getStorage();
+            memoryB = bMatrix.getStorage();
+            memoryC = cMatrix.getStorage();
+            if (single) {
+                floatA = memoryA == null ? aMatrix.getFloatData() : null;
+                floatB = memoryB == null ? bMatrix.getFloatData() : null;
+                floatC = memoryC == null ? cMatrix.getFloatData() : null;
+                if (floatC != null && (floatC == floatA || floatC == floatB))
+                    throw new IllegalArgumentException("Result matrix must not share storage with an operand");
+            } else {
+                a = memoryA == null ? aMatrix.getData() : null;
+                b = memoryB == null ? bMatrix.getData() : null;
+                c = memoryC == null ? cMatrix.getData() : null;
+                if (c != null && (c == a || c == b))
+                    throw new IllegalArgumentException("Result matrix must not share storage with an operand");
+            }
+            if (memoryC != null && (memoryC == memoryA || memoryC == memoryB))
+                throw new IllegalArgumentException("Result matrix must not share storage with an operand");
+            this.m = m;
+            this.n = n;
+            this.k = k;
+            aOffset = aMatrix.getOffset();
+            aRowStep = transposeA ? 1 : aMatrix.getStride();
+            aColStep = transposeA ? aMatrix.getStride() : 1;
+            bOffset = bMatrix.getOffset();
+            bRowStep = transposeB ? 1 : bMatrix.getStride();
+            bColStep = transposeB ? bMatrix.getStride() : 1;
+            cOffset = cMatrix.getOffset();
+            cStride = cMatrix.getStride();
+            this.alpha = alpha;
+            return this;
+        }
+
+        // Drops references to the operands so a reused description does not keep them alive
+        void clear() {
+            a = b = c = null;
+            floatA = floatB = floatC = null;
+            memoryA = memoryB = memoryC = null;
+        }
+
+        // Adds the product into rows [rowStart, rowEnd) and columns [colStart, colEnd) of C
+        void compute(int rowStart, int rowEnd, int colStart, int colEnd) {
+            long blockWork = (long) (rowEnd - rowStart) * (colEnd - colStart) * k;
+            // Small products with unit-stride rows of op(B) gain nothing from packing
+            if (blockWork < PACKING_THRESHOLD && bColStep == 1 && memoryB == null && memoryC == null)
+                computeDirect(rowStart, rowEnd, colStart, colEnd);
+            else
+                computeTiled(rowStart, rowEnd, colStart, colEnd);
+        }
+
+        /* Accumulates row k of op(B) scaled by element (i, k) of op(A) into row i of C. Every
+        element of C sums its products in increasing k, as the dot product formulation does */
+        private void computeDirect(int rowStart, int rowEnd, int colStart, int colEnd) {
+            for (int i = rowStart; i < rowEnd; i++) {
+                int aRow = aOffset + i * aRowStep;
+                int cRow = cOffset + i * cStride;
+                for (int p = 0; p < k; p++) {
+                    int aIndex = aRow + p * aColStep;
+                    int bRow = bOffset + p * bRowStep + colStart;
+                    if (single)
+                        kernels.axpy((float) alpha * floatA(aIndex), floatB, bRow, floatC, cRow + colStart, colEnd - colStart);
+                    else
+                        kernels.axpy(alpha * a(aIndex), b, bRow, c, cRow + colStart, colEnd - colStart);
+                }
+            }
+        }
+
+        /* Copies blocks of op(B) into a contiguous panel so the inner loop reads with unit
+        stride whatever the layout of B, then sweeps blocks of rows of C across the panel
+        while it is still in cache. Blocks of k are visited in order so summation order matches
+        the direct kernel */
+        private void computeTiled(int rowStart, int rowEnd, int colStart, int colEnd) {
+            // Only the panel matching the precision is fetched
+            double[] panel = single ? null : panels.get();
+            float[] floatPanel = single ? floatPanels.get() : null;
+            for (int panelCol = colStart; panelCol < colEnd; panelCol += PANEL_COLS) {
+                int panelWidth = Math.min(PANEL_COLS, colEnd - panelCol);
+                for (int panelRow = 0; panelRow < k; panelRow += PANEL_ROWS) {
+                    int panelHeight = Math.min(PANEL_ROWS, k - panelRow);
+                    pack(panel, floatPanel, panelRow, panelHeight, panelCol, panelWidth);
+                    for (int blockRow = rowStart; blockRow < rowEnd; blockRow += BLOCK_ROWS) {
+                        int blockEnd = Math.min(blockRow + BLOCK_ROWS, rowEnd);
+                        for (int i = blockRow; i < blockEnd; i++) {
+                            int aRow = aOffset + i * aRowStep + panelRow * aColStep;
+                            int cRow = cOffset + i * cStride + panelCol;
+                            // Off-heap rows of C are updated in a staged copy
+                            double[] cValues = single ? null : c;
+                            float[] floatCValues = single ? floatC : null;
+                            int cStart = cRow;
+                            if (memoryC != null) {
+                                cStart = 0;
+                                if (single)
+                                    memoryC.load(cRow, floatCValues = stagedFloatRows.get(), 0, panelWidth);
+                                else
+                                    memoryC.load(cRow, cValues = stagedRows.get(), 0, panelWidth);
+                            }
+                            for (int p = 0; p < panelHeight; p++) {
+                                int aIndex = aRow + p * aColStep;
+                                if (single)
+                                    kernels.axpy((float) alpha * floatA(aIndex), floatPanel, p * panelWidth, floatCValues, cStart, panelWidth);
+                                else
+                                    kernels.axpy(alpha * a(aIndex), panel, p * panelWidth, cValues, cStart, panelWidth);
+                            }
+                            if (memoryC != null && single)
+                                memoryC.store(cRow, floatCValues, 0, panelWidth);
+                            else if (memoryC != null)
+                                memoryC.store(cRow, cValues, 0, panelWidth);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Element of A at the given position, from whichever storage holds it
+        private double a(int index) {
+            return memoryA != null ? memoryA.get(index) : a[index];
+        }
+
+        private float floatA(int index) {
+            return memoryA != null ? (float) memoryA.get(index) : floatA[index];
+        }
+
+        // Copies a height x width block of op(B) starting at (row, col) into whichever panel is in use, row-major
+        private void pack(double[] panel, float[] floatPanel, int row, int height, int col, int width) {
+            for (int p = 0; p < height; p++) {
+                int source = bOffset + (row + p) * bRowStep + col * bColStep;
+                int destination = p * width;
+                if (memoryB != null && bColStep == 1) {
+                    if (single)
+                        memoryB.load(source, floatPanel, destination, width);
+                    else
+                        memoryB.load(source, panel, destination, width);
+                } else if (memoryB != null) {
+                    for (int j = 0; j < width; j++) {
+                        if (single)
+                            floatPanel[destination + j] = (float) memoryB.get(source + (long) j * bColStep);
+                        else
+                            panel[destination + j] = memoryB.get(source + (long) j * bColStep);
+                    }
+                } else if (single && bColStep == 1) {
+                    System.arraycopy(floatB, source, floatPanel, destination, width);
+                } else if (single) {
+                    for (int j = 0; j < width; j++)
+                        floatPanel[destination + j] = floatB[source + j * bColStep];
+                } else if (bColStep == 1) {
+                    System.arraycopy(b, source, panel, destination, width);
+                } else {
+                    for (int j = 0; j < width; j++)
+                        panel[destination + j] = b[source + j * bColStep];
+                }
+            }
+        }
+    }
+
+    // Block of the output that is either computed directly or split in half along its longer side
+    @SuppressWarnings("serial")
+    private static final class Block extends RecursiveAction {
+        private final Product product;
+        private final int rowStart, rowEnd, colStart, colEnd;
+
+        Block(Product product, int rowStart, int rowEnd, int colStart, int colEnd) {
+            this.product = product;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.colStart = colStart;
+            this.colEnd = colEnd;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = rowEnd - rowStart;
+            int cols = colEnd - colStart;
+            long work = (long) rows * cols * product.k;
+            if (work <= LEAF_SIZE || (rows < 2 && cols < 2)) {
+                product.compute(rowStart, rowEnd, colStart, colEnd);
+            } else if (rows >= cols) {
+                int middle = rowStart + rows / 2;
+                invokeAll(new Block(product, rowStart, middle, colStart, colEnd),
+                        new Block(product, middle, rowEnd, colStart, colEnd));
+            } else {
+                int middle = colStart + cols / 2;
+                invokeAll(new Block(product, rowStart, rowEnd, colStart, middle),
+                        new Block(product, rowStart, rowEnd, middle, colEnd));
+            }
+        }
+    }
+}
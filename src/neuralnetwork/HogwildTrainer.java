@@ -0,0 +1,109 @@
+package neuralnetwork;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* Asynchronous lock-free (Hogwild) training. Every thread trains a replica that has its own
+workspaces and deltas but shares the network's weight and bias storage, and applies its updates
+straight to that storage without waiting for the other threads. Each thread works through its
+own contiguous shard of the samples. With one thread this is plain serial mini-batch training,
+which makes it the baseline for comparing throughput and final loss */
+public class HogwildTrainer implements AutoCloseable {
+
+    private final NeuralNetwork network; // Network whose parameters are trained
+    private final Matrix inputs; // All training inputs, used to measure the final loss
+    private final Matrix outputs; // All expected outputs
+    private final NeuralNetwork[] replicas; // One per thread, sharing the network's parameters
+    private final ArrayList<ArrayList<Matrix>> inputBatches; // Per thread, views of its shard's batches
+    private final ArrayList<ArrayList<Matrix>> outputBatches; // Per thread, the matching expected outputs
+    private final ExecutorService executor;
+
+    public HogwildTrainer(NeuralNetwork network, Matrix inputs, Matrix outputs, int threads, int batchSize) {
+        if (threads < 1 || batchSize < 1)
+            throw new IllegalArgumentException("Need at least one thread and one sample per batch");
+        if (inputs.getRows() != outputs.getRows())
+            throw new IllegalArgumentException("Inputs and outputs must have the same number of samples");
+        if (inputs.getRows() < threads)
+            throw new IllegalArgumentException("Every thread needs at least one sample");
+        this.network = network;
+        this.inputs = inputs;
+        this.outputs = outputs;
+
+        replicas = new NeuralNetwork[threads];
+        inputBatches = new ArrayList<>();
+        outputBatches = new ArrayList<>();
+        int samples = inputs.getRows();
+        for (int thread = 0; thread < threads; thread++) {
+            replicas[thread] = new NeuralNetwork(network, true);
+            int shardStart = (int) ((long) samples * thread / threads);
+            int shardEnd = (int) ((long) samples * (thread + 1) / threads);
+            ArrayList<Matrix> threadInputs = new ArrayList<>();
+            ArrayList<Matrix> threadOutputs = new ArrayList<>();
+            for (int start = shardStart; start < shardEnd; start += batchSize) {
+                int rows = Math.min(batchSize, shardEnd - start);
+                threadInputs.add(inputs.view(start, 0, rows, inputs.getCols()));
+                threadOutputs.add(outputs.view(start, 0, rows, outputs.getCols()));
+            }
+            inputBatches.add(threadInputs);
+            outputBatches.add(threadOutputs);
+        }
+        // Daemon threads, so that a trainer which is never closed cannot keep the JVM running
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "hogwild-trainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Trains every thread's shard for the given number of epochs and reports throughput and final loss
+    public TrainingReport train(int epochs) {
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+        for (int thread = 0; thread < replicas.length; thread++) {
+            int worker = thread;
+            tasks.add(() -> {
+                trainShard(worker, epochs);
+                return null;
+            });
+        }
+        long start = System.nanoTime();
+        try {
+            for (Future<Void> result : executor.invokeAll(tasks))
+                result.get(); // Rethrows anything a worker threw
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while training", exception);
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Training thread failed", exception.getCause());
+        }
+        long elapsed = System.nanoTime() - start;
+        return new TrainingReport((long) inputs.getRows() * epochs, elapsed, network.meanSquareError(inputs, outputs));
+    }
+
+    // Getter for the number of training threads
+    public int getThreads() {
+        return replicas.length;
+    }
+
+    // Stops the training threads
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private void trainShard(int thread, int epochs) {
+        NeuralNetwork replica = replicas[thread];
+        ArrayList<Matrix> threadInputs = inputBatches.get(thread);
+        ArrayList<Matrix> threadOutputs = outputBatches.get(thread);
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            for (int batch = 0; batch < threadInputs.size(); batch++) {
+                replica.feedForward(threadInputs.get(batch));
+                replica.backpropagate(threadOutputs.get(batch));
+                replica.updateWeights(); // Applied to the shared parameters straight away
+            }
+        }
+    }
+}
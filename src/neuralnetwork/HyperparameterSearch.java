@@ -0,0 +1,187 @@
+package neuralnetwork;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/* Trains many candidate networks at once to find good hyperparameters, by successive halving. Every
+candidate trains for a few epochs, then only the fraction with the lowest validation loss trains
+on for several times as many, and so on until the survivors reach the full number of epochs; most
+of the time thus goes on the promising candidates. Each round trains its candidates concurrently
+on a work-stealing pool, so that short and long candidates keep every core busy. All candidates
+read the same training and validation matrices, which are never modified. Each epoch, a candidate
+shuffles the samples and gathers each batch into buffers of its own, so batches are mixed even
+when the data is sorted, as a shuffling DataLoader would mix them. Each candidate trains
+single-threaded from its own seed, so the results do not depend on the number of threads */
+public class HyperparameterSearch implements AutoCloseable {
+
+    private final Matrix inputs; // Training inputs, one sample per row
+    private final Matrix outputs; // Expected outputs for the training inputs
+    private final Matrix validationInputs; // Samples the candidates are ranked on, not trained on
+    private final Matrix validationOutputs;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool; // Whether close() should shut the pool down
+
+    // Searches on a dedicated pool with one thread per core
+    public HyperparameterSearch(Matrix inputs, Matrix outputs, Matrix validationInputs, Matrix validationOutputs) {
+        this(inputs, outputs, validationInputs, validationOutputs, null, true);
+    }
+
+    // Searches on the given pool, which is left running by close()
+    public HyperparameterSearch(Matrix inputs, Matrix outputs, Matrix validationInputs, Matrix validationOutputs,
+                                ForkJoinPool pool) {
+        this(inputs, outputs, validationInputs, validationOutputs, pool, false);
+    }
+
+    // With 'ownsPool' set, creates the pool itself once the arguments are known to be valid
+    private HyperparameterSearch(Matrix inputs, Matrix outputs, Matrix validationInputs, Matrix validationOutputs,
+                                 ForkJoinPool pool, boolean ownsPool) {
+        if (inputs.getRows() != outputs.getRows() || validationInputs.getRows() != validationOutputs.getRows())
+            throw new IllegalArgumentException("Inputs and outputs must have the same number of samples");
+        if (inputs.getRows() < 1 || validationInputs.getRows() < 1)
+            throw new IllegalArgumentException("Training and validation sets must each have at least one sample");
+        if (validationInputs.getCols() != inputs.getCols() || validationOutputs.getCols() != outputs.getCols())
+            throw new IllegalArgumentException("Validation samples must have the same columns as training samples");
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.validationInputs = validationInputs;
+        this.validationOutputs = validationOutputs;
+        this.pool = ownsPool ? new ForkJoinPool() : pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /* Runs successive halving over the candidates. All train for 'minEpochs' epochs; then the best
+    1/'reduction' of them (at least one) train until 'reduction' times as many epochs in total, and
+    so on, the last round training the survivors to 'maxEpochs'. Networks are built in the
+    precision of the training inputs */
+    public Leaderboard run(List<Hyperparameters> candidates, int minEpochs, int maxEpochs, int reduction) {
+        if (candidates.isEmpty())
+            throw new IllegalArgumentException("Need at least one candidate");
+        if (minEpochs < 1 || maxEpochs < minEpochs)
+            throw new IllegalArgumentException("Epochs must be at least 1, and the maximum at least the minimum");
+        if (reduction < 2)
+            throw new IllegalArgumentException("Each round must keep at most half of the candidates");
+        List<Candidate> alive = new ArrayList<>();
+        for (Hyperparameters hyperparameters : candidates) {
+            List<Integer> sizes = hyperparameters.getLayerSizes();
+            if (sizes.get(0) != inputs.getCols() || sizes.get(sizes.size() - 1) != outputs.getCols())
+                throw new IllegalArgumentException("Every candidate must have one input per input column and one output "
+                        + "per output column");
+            alive.add(new Candidate(hyperparameters, alive.size()));
+        }
+        List<Candidate> all = new ArrayList<>(alive);
+        int epochs = minEpochs;
+        while (true) {
+            pool.invoke(new Round(alive, epochs, 0, alive.size()));
+            if (epochs == maxEpochs)
+                break;
+            alive.sort(Comparator.comparingDouble(candidate -> candidate.loss)); // Stable, so ties keep their order
+            alive = new ArrayList<>(alive.subList(0, Math.max(1, alive.size() / reduction)));
+            epochs = (int) Math.min((long) epochs * reduction, maxEpochs);
+        }
+        // Diverged candidates have a NaN loss, which sorts after every number
+        all.sort(Comparator.comparingInt((Candidate candidate) -> -candidate.epochs)
+                .thenComparingDouble(candidate -> candidate.loss));
+        List<Leaderboard.Entry> entries = new ArrayList<>();
+        for (Candidate candidate : all)
+            entries.add(new Leaderboard.Entry(candidate.hyperparameters, candidate.network, candidate.epochs,
+                    candidate.loss, candidate.nanoseconds));
+        return new Leaderboard(entries);
+    }
+
+    // Shuts down the pool if this search created it
+    @Override
+    public void close() {
+        if (ownsPool)
+            pool.shutdown();
+    }
+
+    // A network being trained, touched by one thread at a time
+    private final class Candidate {
+        private final Hyperparameters hyperparameters;
+        private final NeuralNetwork network;
+        // The candidate's own batches, gathered from the shared data
+        private final BatchBuffer inputBuffer;
+        private final BatchBuffer outputBuffer;
+        private final int[] order; // Samples in the order of the current epoch
+        private final Random random; // Shuffles the samples every epoch
+        private int epochs;
+        private double loss = Double.NaN;
+        private long nanoseconds;
+
+        Candidate(Hyperparameters hyperparameters, long seed) {
+            this.hyperparameters = hyperparameters;
+            network = hyperparameters.createNetwork(inputs.getPrecision());
+            int batchSize = Math.min(hyperparameters.getBatchSize(), inputs.getRows());
+            inputBuffer = new BatchBuffer(inputs.getCols(), batchSize, inputs.getPrecision());
+            outputBuffer = new BatchBuffer(outputs.getCols(), batchSize, outputs.getPrecision());
+            order = new int[inputs.getRows()];
+            for (int sample = 0; sample < order.length; sample++)
+                order[sample] = sample;
+            random = new Random(seed);
+        }
+
+        // Trains until 'target' epochs in total, then measures the validation loss
+        void trainTo(int target) {
+            long start = System.nanoTime();
+            for (; epochs < target; epochs++) {
+                // Fisher-Yates shuffle, so every epoch regroups the samples into new batches
+                for (int index = order.length - 1; index > 0; index--) {
+                    int other = random.nextInt(index + 1);
+                    int swap = order[index];
+                    order[index] = order[other];
+                    order[other] = swap;
+                }
+                for (int first = 0; first < order.length; first += hyperparameters.getBatchSize()) {
+                    int rows = Math.min(hyperparameters.getBatchSize(), order.length - first);
+                    Matrix batchInputs = gather(inputs, first, inputBuffer.rows(rows));
+                    Matrix batchOutputs = gather(outputs, first, outputBuffer.rows(rows));
+                    network.feedForward(batchInputs);
+                    network.backpropagate(batchOutputs);
+                    network.updateWeights();
+                }
+            }
+            nanoseconds += System.nanoTime() - start;
+            loss = network.meanSquareError(validationInputs, validationOutputs);
+        }
+
+        // Copies the rows of 'source' for samples order[first], ... into 'batch', one per row
+        private Matrix gather(Matrix source, int first, Matrix batch) {
+            for (int row = 0; row < batch.getRows(); row++) {
+                int sample = order[first + row];
+                for (int col = 0; col < batch.getCols(); col++)
+                    batch.setElement(source.getElement(sample, col), row, col);
+            }
+            return batch;
+        }
+    }
+
+    /* Trains candidates [first, last) to the given number of epochs, splitting the range in halves
+    so that idle threads can steal either half */
+    @SuppressWarnings("serial")
+    private static final class Round extends RecursiveAction {
+        private final List<Candidate> candidates;
+        private final int epochs;
+        private final int first, last;
+
+        Round(List<Candidate> candidates, int epochs, int first, int last) {
+            this.candidates = candidates;
+            this.epochs = epochs;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                candidates.get(first).trainTo(epochs);
+                return;
+            }
+            int middle = (first + last) >>> 1;
+            invokeAll(new Round(candidates, epochs, first, middle), new Round(candidates, epochs, middle, last));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package neuralnetwork;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/* One point of a hyperparameter search: everything needed to build and train a network. Instances
+are immutable, and the activation functions and optimizer are stateless, so one set can build
+any number of networks on any threads */
+public final class Hyperparameters {
+
+    private final List<Integer> layerSizes; // Number of nodes in each layer of nodes, input first
+    private final List<ActivationFunction> activations; // One per layer, so one fewer than the sizes
+    private final double learningRate;
+    private final int batchSize; // Number of samples per weight update
+    private final Optimizer optimizer;
+
+    public Hyperparameters(List<Integer> layerSizes, List<ActivationFunction> activations, double learningRate,
+                           int batchSize, Optimizer optimizer) {
+        if (layerSizes.size() < 2)
+            throw new IllegalArgumentException("Network must have at least an input and an output layer");
+        if (activations.size() != layerSizes.size() - 1)
+            throw new IllegalArgumentException("Number of activation functions must be 1 less than number of layers");
+        for (int size : layerSizes) {
+            if (size < 1)
+                throw new IllegalArgumentException("Every layer must have at least one node");
+        }
+        if (!(learningRate > 0))
+            throw new IllegalArgumentException("Learning rate must be positive");
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        this.layerSizes = List.copyOf(layerSizes);
+        this.activations = List.copyOf(activations);
+        this.learningRate = learningRate;
+        this.batchSize = batchSize;
+        this.optimizer = optimizer;
+    }
+
+    // Builds a new untrained network with these settings, storing and computing in the given precision
+    public NeuralNetwork createNetwork(Precision precision) {
+        NeuralNetwork network = new NeuralNetwork(new ArrayList<>(layerSizes), new ArrayList<>(activations),
+                learningRate, precision);
+        network.setOptimizer(optimizer);
+        return network;
+    }
+
+    public List<Integer> getLayerSizes() {
+        return layerSizes;
+    }
+
+    public List<ActivationFunction> getActivations() {
+        return activations;
+    }
+
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
+    // E.g. "4-8-3 Tanh/Softmax, Nesterov, rate 0.01, batch 1"
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int layer = 0; layer < layerSizes.size(); layer++)
+            text.append(layer == 0 ? "" : "-").append(layerSizes.get(layer));
+        text.append(' ');
+        for (int layer = 0; layer < activations.size(); layer++) {
+            String name = activations.get(layer).getClass().getSimpleName();
+            // Runs of the same function are named once
+            if (layer == 0 || activations.get(layer).getClass() != activations.get(layer - 1).getClass())
+                text.append(layer == 0 ? "" : "/").append(name);
+        }
+        return text.append(", ").append(optimizer.getClass().getSimpleName()).append(", rate ").append(learningRate)
+                .append(", batch ").append(batchSize).toString();
+    }
+}
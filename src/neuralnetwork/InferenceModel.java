@@ -0,0 +1,73 @@
+package neuralnetwork;
+
+/* Immutable snapshot of a trained network for prediction only. The weights and biases are
+copied when the snapshot is taken (off-heap ones into the same scope), and predict keeps all
+intermediate values local to the call, so any number of threads can share one model while the
+original network keeps training */
+public final class InferenceModel {
+
+    private final Matrix[] weights; // Per layer, one row per input node and one column per output node
+    private final Matrix[] biases; // Per layer, a single row with one value per output node
+    private final ActivationFunction[] activations; // Per layer, stateless so safe to share
+    private final Gemm gemm; // Engine used for every layer's product
+
+    public InferenceModel(NeuralNetwork network) {
+        this(network, Gemm.getDefault());
+    }
+
+    public InferenceModel(NeuralNetwork network, Gemm gemm) {
+        int layers = network.getLayerCount();
+        weights = new Matrix[layers];
+        biases = new Matrix[layers];
+        activations = new ActivationFunction[layers];
+        for (int index = 0; index < layers; index++) {
+            Layer layer = network.getLayer(index);
+            weights[index] = layer.getWeights().copy();
+            biases[index] = layer.getBiases().copy();
+            activations[index] = layer.getActivationFunction();
+        }
+        this.gemm = gemm;
+    }
+
+    // Wraps parameters that are not shared with anything that changes them, without copying them
+    InferenceModel(Matrix[] weights, Matrix[] biases, ActivationFunction[] activations, Gemm gemm) {
+        this.weights = weights;
+        this.biases = biases;
+        this.activations = activations;
+        this.gemm = gemm;
+    }
+
+    /* Feeds a batch of inputs, one sample per row, through the network and returns a new output
+    matrix in the model's precision. Inputs of another precision are converted first */
+    public Matrix predict(Matrix input) {
+        if (input.getRows() < 1)
+            throw new IllegalArgumentException("Network input must contain at least one sample");
+        if (input.getCols() != getInputSize())
+            throw new IllegalArgumentException("Network input must have one column per input node");
+        Matrix current = input.getPrecision() == getPrecision() ? input : input.copy(getPrecision());
+        for (int layer = 0; layer < weights.length; layer++) {
+            Matrix next = new Matrix(current.getRows(), weights[layer].getCols(), getPrecision());
+            gemm.multiply(current, false, weights[layer], false, 1.0, false, next);
+            next.addToEachRow(biases[layer]); // Apply bias to every sample
+            activations[layer].function(next, next); // In place, as 'next' is private to this call
+            current = next;
+        }
+        return current;
+    }
+
+    // Number of values each sample must have
+    public int getInputSize() {
+        return weights[0].getRows();
+    }
+
+    // Number of values predicted for each sample
+    public int getOutputSize() {
+        return weights[weights.length - 1].getCols();
+    }
+
+    // Precision the model computes in, taken from the network it was created from
+    public Precision getPrecision() {
+        return weights[0].getPrecision();
+    }
+
+}
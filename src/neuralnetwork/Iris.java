@@ -0,0 +1,203 @@
+package neuralnetwork;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class Iris {
+
+    private static Dataset trainSet; // Training samples, read from the memory-mapped cache
+    private static Matrix trainData; // Input training data, one sample per row
+    private static Matrix trainOutput; // Expected output for training data
+    private static Matrix testData; // Input testing data, one sample per row
+    private static Matrix testOutput; // Expected output for testing data
+    private static NeuralNetwork network; // Network used in training and testing
+
+    private static final int trainSize = 35; // Number of each flower type in testing data
+    /* Dictates the number of nodes in each layer of the network (controls depth and
+    breadth on a layer by layer basis */
+    private static final ArrayList<Integer> networkTopology = new ArrayList<>(
+            List.of(4, 5, 5, 5, 3)
+    );
+    private static final ArrayList<ActivationFunction> networkActivations = new ArrayList<> (
+            List.of(
+                    new Sigmoid(),
+                    new Tanh(),
+                    new Sigmoid(),
+                    new Softmax()
+            )
+    );
+    private static final int trainingIterations = 5000; // Number of epochs
+    // How deltas are applied; Nesterov needs about a quarter of the epochs (see benchmarks/optimizers.txt)
+    private static final Optimizer optimizer = new SGD();
+    private static final Precision precision = Precision.DOUBLE; // FLOAT halves memory at ~7 significant digits
+    private static final int batchSize = 1; // Number of samples per weight update (per thread)
+    private static final int trainingThreads = 1; // Replicas trained data-parallel; 1 trains on the main thread
+    private static final boolean shuffleData = true; // Visit training samples in a new order every epoch
+    private static final boolean prefetchBatches = false; // Batches this small load faster on the main thread
+    private static final Path dataCache = Path.of("iris.cache"); // Binary form of the data file
+    private static final Path modelFile = Path.of("iris.model"); // Saved network, reused instead of retraining
+    private static final Path checkpointFile = Path.of("iris.checkpoint"); // Latest snapshot while training
+    private static final int checkpointInterval = 500; // Epochs between checkpoints while training
+    private static final boolean testQuantized = true; // Also test an int8 copy of the trained network
+    // Search for better settings than the above first, and print a leaderboard of those tried
+    private static final boolean searchHyperparameters = false;
+    private static final int validationSize = 10; // Of each flower type's training samples, held out by the search
+
+    public static void main(String[] args) throws IOException {
+        loadData("resources/iris.data");
+        if (searchHyperparameters)
+            search();
+        // Skip training entirely if a trained network was saved by an earlier run
+        if (Files.exists(modelFile)) {
+            System.out.println("Loading trained network from " + modelFile);
+            network = ModelCheckpoint.load(modelFile, precision);
+        } else {
+            network = new NeuralNetwork(networkTopology, networkActivations, 0.01, precision);
+            network.setOptimizer(optimizer);
+            train();
+            ModelCheckpoint.save(network, modelFile);
+        }
+        test();
+    }
+
+    /* Load training and testing data from a given CSV file. The file is converted to a binary
+    cache on the first run, which later runs memory-map instead of parsing */
+    private static void loadData(String file) throws IOException {
+        Dataset data = Dataset.open(Path.of(file), dataCache, 4); // Flower type is the fifth column
+        // Training data is first 'trainSize' examples of each flower type of 50
+        trainSet = data.subset(IntStream.range(0, data.size()).filter(row -> row % 50 < trainSize).toArray());
+        // The rest is testing data
+        Dataset testSet = data.subset(IntStream.range(0, data.size()).filter(row -> row % 50 >= trainSize).toArray());
+        // Output data \in {(1, 0, 0), (0, 1, 0), (0, 0, 1)} contingent on flower type
+        trainData = trainSet.loadInputs();
+        trainOutput = trainSet.loadOutputs();
+        testData = testSet.loadInputs();
+        testOutput = testSet.loadOutputs();
+    }
+
+    /* Tries combinations of topology, learning rate, batch size and optimizer, training them all at
+    once with successive halving. The last 'validationSize' training samples of each flower type
+    rank the candidates, so the test data stays unseen */
+    private static void search() {
+        System.out.println("Searching hyperparameters...");
+        int searchTrainSize = trainSize - validationSize;
+        Dataset searchTrain = trainSet.subset(
+                IntStream.range(0, trainSet.size()).filter(row -> row % trainSize < searchTrainSize).toArray());
+        Dataset validation = trainSet.subset(
+                IntStream.range(0, trainSet.size()).filter(row -> row % trainSize >= searchTrainSize).toArray());
+        SearchSpace space = new SearchSpace(4, 3, new Softmax(),
+                List.of(List.of(5), List.of(8), List.of(5, 5), List.of(5, 5, 5)),
+                List.of(new Sigmoid(), new Tanh()),
+                List.of(0.003, 0.01, 0.03, 0.1),
+                List.of(1, 8),
+                List.of(new SGD(), new Nesterov()));
+        HyperparameterSearch search = new HyperparameterSearch(searchTrain.loadInputs(), searchTrain.loadOutputs(),
+                validation.loadInputs(), validation.loadOutputs());
+        // Every candidate gets 50 epochs, the best third of them 150, and so on up to the full count
+        Leaderboard leaderboard = search.run(space.grid(), 50, trainingIterations, 3);
+        search.close();
+        List<Leaderboard.Entry> entries = leaderboard.getEntries();
+        for (int rank = 0; rank < Math.min(10, entries.size()); rank++)
+            System.out.printf("%3d. %s%n", rank + 1, entries.get(rank));
+    }
+
+    // Trains the model on the data loaded from the file
+    private static void train() {
+        System.out.println("Training...");
+        // Each thread trains on its own shard, so a step covers 'trainingThreads' batches
+        ParallelTrainer trainer = trainingThreads > 1
+                ? new ParallelTrainer(network, trainData, trainOutput, trainingThreads, batchSize)
+                : null;
+        DataLoader loader = new DataLoader(trainSet, batchSize, shuffleData, 0, prefetchBatches);
+        // Saves progress in the background so an interrupted run is not wasted
+        Checkpointer checkpointer = new Checkpointer(checkpointFile, checkpointInterval);
+        // Reports each epoch's loss and throughput, and to JFR when the run is recorded
+        TrainingMetrics metrics = new TrainingMetrics();
+        metrics.addListener(new TrainingListener() {
+            @Override
+            public void onEpoch(TrainingMetrics.Epoch epoch) {
+                // Provide 5% incremental updates on training completion
+                if (epoch.getEpoch() % (trainingIterations / 20) == 0)
+                    System.out.printf("Epoch %d: loss %.4g, %.0f samples/s%n",
+                            epoch.getEpoch(), epoch.getLoss(), epoch.getSamplesPerSecond());
+            }
+        });
+        network.setMetrics(metrics);
+        for (int iteration = 0; iteration < trainingIterations; iteration++) {
+            if (trainer != null) {
+                trainer.trainEpoch();
+            } else {
+                loader.startEpoch();
+                while (loader.hasNext()) {
+                    // The loader gathers the following batch in the background meanwhile
+                    DataLoader.Batch batch = loader.next();
+                    // Feed forward algorithm performed on the batch of training input samples
+                    network.feedForward(batch.getInputs());
+                    // Backpropagation algorithm performed on the training expected outputs
+                    network.backpropagate(batch.getOutputs());
+                    // Weights are modified by the weight deltas averaged over the batch
+                    network.updateWeights();
+                }
+            }
+            checkpointer.onEpoch(network, iteration);
+            metrics.endEpoch();
+        }
+        network.setMetrics(null);
+        checkpointer.close();
+        loader.close();
+        if (trainer != null)
+            trainer.close();
+        System.out.println("Training complete.");
+    }
+
+    private static void test() {
+        System.out.println("Testing...");
+        // Perform feed forward on every test sample as a single batch
+        network.feedForward(testData);
+        Matrix networkOutput = network.getOutput();
+        System.out.print("Mean square error: ");
+        System.out.println(meanSquareError(networkOutput));
+        System.out.println("Accuracy: " + accuracy(networkOutput));
+        if (testQuantized) {
+            // The training inputs are a representative sample for calibrating the input ranges
+            QuantizedModel quantized = new QuantizedModel(network, trainData);
+            Matrix quantizedOutput = quantized.predict(testData);
+            System.out.println("Int8 mean square error: " + meanSquareError(quantizedOutput));
+            System.out.println("Int8 accuracy: " + accuracy(quantizedOutput));
+            System.out.println("Int8 model size: " + quantized.getParameterBytes() + " bytes (original "
+                    + network.getParameterBytes() + " bytes)");
+        }
+    }
+
+    // Mean of the squares of the errors over every output of every test sample (MSE)
+    private static double meanSquareError(Matrix networkOutput) {
+        double error = 0.0; // Sum total square error
+        for (int inputIndex = 0; inputIndex < 3 * (50 - trainSize); inputIndex++) {
+            // Add square of difference between true and predicted values
+            for (int i = 0; i < 3; i++) {
+                double difference = networkOutput.getElement(inputIndex, i) - testOutput.getElement(inputIndex, i);
+                error += difference * difference;
+            }
+        }
+        return error / (9 * (50 - trainSize));
+    }
+
+    // Fraction of test samples whose most active output is the true flower type
+    private static double accuracy(Matrix networkOutput) {
+        int correct = 0;
+        for (int inputIndex = 0; inputIndex < 3 * (50 - trainSize); inputIndex++) {
+            int predicted = 0;
+            for (int i = 1; i < 3; i++) {
+                if (networkOutput.getElement(inputIndex, i) > networkOutput.getElement(inputIndex, predicted))
+                    predicted = i;
+            }
+            if (testOutput.getElement(inputIndex, predicted) == 1)
+                correct++;
+        }
+        return (double) correct / (3 * (50 - trainSize));
+    }
+}
@@ -0,0 +1,289 @@
+package neuralnetwork;
+
+/* Inner loops shared by Matrix, Gemm and the activation functions, each working on one run of
+consecutive elements. This class is the portable scalar backend; when the jdk.incubator.vector
+module is present (run with --add-modules jdk.incubator.vector) the SIMD backend in VectorKernels
+is selected instead when the class is first used. Setting -Dneuralnetwork.simd=false forces the
+scalar backend. The element-wise kernels give identical results on both backends; the
+transcendental ones and the sum returned by exp may differ in the last few bits */
+public class Kernels {
+
+    private static final Kernels instance = select();
+
+    Kernels() {
+    }
+
+    // Backend chosen at startup
+    public static Kernels get() {
+        return instance;
+    }
+
+    private static Kernels select() {
+        if (!Boolean.parseBoolean(System.getProperty("neuralnetwork.simd", "true")))
+            return new Kernels();
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return new Kernels();
+        try {
+            // Loaded reflectively so that the vector classes are only linked when the module is present
+            return (Kernels) Class.forName("neuralnetwork.VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new Kernels();
+        }
+    }
+
+    // Name of the backend, for reports
+    public String getName() {
+        return "scalar";
+    }
+
+    // y[i] += scale * x[i]
+    void axpy(double scale, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        for (int i = 0; i < length; i++)
+            y[yOffset + i] += scale * x[xOffset + i];
+    }
+
+    // out[i] = a[i] + b[i]
+    void add(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = a[aOffset + i] + b[bOffset + i];
+    }
+
+    // out[i] = a[i] - b[i]
+    void subtract(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = a[aOffset + i] - b[bOffset + i];
+    }
+
+    // out[i] = a[i] * b[i]
+    void multiply(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = a[aOffset + i] * b[bOffset + i];
+    }
+
+    // out[i] = in[i] / divisor
+    void divide(double[] in, int inOffset, double divisor, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = in[inOffset + i] / divisor;
+    }
+
+    // out[i] = 1 / (1 + e^-in[i])
+    void sigmoid(double[] in, int inOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = 1 / (1 + Math.exp(-in[inOffset + i]));
+    }
+
+    // out[i] = tanh(in[i])
+    void tanh(double[] in, int inOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = Math.tanh(in[inOffset + i]);
+    }
+
+    // out[i] = e^(in[i] - shift), returning the sum of the results
+    double exp(double[] in, int inOffset, double shift, double[] out, int outOffset, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            double exponential = Math.exp(in[inOffset + i] - shift);
+            out[outOffset + i] = exponential;
+            sum += exponential;
+        }
+        return sum;
+    }
+
+    // Largest of the values, or negative infinity if there are none
+    double max(double[] in, int inOffset, int length) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++)
+            max = Math.max(max, in[inOffset + i]);
+        return max;
+    }
+
+    // out[i] = in[i] * (1 - in[i]), the derivative of the logistic function given its output
+    void logisticDerivative(double[] in, int inOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            double x = in[inOffset + i];
+            out[outOffset + i] = x * (1 - x);
+        }
+    }
+
+    // out[i] = 1 - in[i]^2, the derivative of tanh given its output
+    void tanhDerivative(double[] in, int inOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            double x = in[inOffset + i];
+            out[outOffset + i] = 1 - x * x;
+        }
+    }
+
+    /* Single-precision versions of the kernels above. The transcendental functions are evaluated in
+    double precision and rounded, so they are as accurate as a float allows */
+
+    void axpy(float scale, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        for (int i = 0; i < length; i++)
+            y[yOffset + i] += scale * x[xOffset + i];
+    }
+
+    void add(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = a[aOffset + i] + b[bOffset + i];
+    }
+
+    void subtract(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = a[aOffset + i] - b[bOffset + i];
+    }
+
+    void multiply(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = a[aOffset + i] * b[bOffset + i];
+    }
+
+    void divide(float[] in, int inOffset, float divisor, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = in[inOffset + i] / divisor;
+    }
+
+    void sigmoid(float[] in, int inOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = (float) (1 / (1 + Math.exp(-in[inOffset + i])));
+    }
+
+    void tanh(float[] in, int inOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++)
+            out[outOffset + i] = (float) Math.tanh(in[inOffset + i]);
+    }
+
+    float exp(float[] in, int inOffset, float shift, float[] out, int outOffset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            float exponential = (float) Math.exp(in[inOffset + i] - shift);
+            out[outOffset + i] = exponential;
+            sum += exponential;
+        }
+        return sum;
+    }
+
+    float max(float[] in, int inOffset, int length) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++)
+            max = Math.max(max, in[inOffset + i]);
+        return max;
+    }
+
+    void logisticDerivative(float[] in, int inOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            float x = in[inOffset + i];
+            out[outOffset + i] = x * (1 - x);
+        }
+    }
+
+    void tanhDerivative(float[] in, int inOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            float x = in[inOffset + i];
+            out[outOffset + i] = 1 - x * x;
+        }
+    }
+
+    // Sum of a[i] * b[i] over signed bytes, accumulated in 32-bit integers
+    int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a[aOffset + i] * b[bOffset + i];
+        return sum;
+    }
+
+    /* Fused optimizer updates. Each reads a run of parameters' deltas and optimizer state once,
+    adds the change to the parameters, advances the state and zeroes the deltas */
+
+    // parameters[i] += deltas[i]
+    void applyDeltas(double[] parameters, int parameterOffset, double[] deltas, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            parameters[parameterOffset + i] += deltas[offset + i];
+            deltas[offset + i] = 0;
+        }
+    }
+
+    /* velocity[i] = momentum * velocity[i] + deltas[i], then parameters[i] += velocity[i], or with
+    'nesterov' set += momentum * velocity[i] + deltas[i] */
+    void momentum(double momentum, boolean nesterov, double[] parameters, int parameterOffset, double[] deltas,
+                  double[] velocity, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            double delta = deltas[offset + i];
+            double next = momentum * velocity[offset + i] + delta;
+            velocity[offset + i] = next;
+            parameters[parameterOffset + i] += nesterov ? momentum * next + delta : next;
+            deltas[offset + i] = 0;
+        }
+    }
+
+    /* meanSquare[i] = decay * meanSquare[i] + (1 - decay) * deltas[i]^2, then
+    parameters[i] += rate * deltas[i] / (sqrt(meanSquare[i]) + epsilon) */
+    void rmsProp(double decay, double rate, double epsilon, double[] parameters, int parameterOffset,
+                 double[] deltas, double[] meanSquare, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            double delta = deltas[offset + i];
+            double next = decay * meanSquare[offset + i] + (1 - decay) * (delta * delta);
+            meanSquare[offset + i] = next;
+            parameters[parameterOffset + i] += rate * delta / (Math.sqrt(next) + epsilon);
+            deltas[offset + i] = 0;
+        }
+    }
+
+    /* mean[i] = beta1 * mean[i] + (1 - beta1) * deltas[i] and meanSquare[i] likewise with beta2 and
+    deltas[i]^2, then parameters[i] += stepSize * mean[i] / (sqrt(meanSquare[i] * squareCorrection) + epsilon) */
+    void adam(double beta1, double beta2, double stepSize, double squareCorrection, double epsilon,
+              double[] parameters, int parameterOffset, double[] deltas, double[] mean, double[] meanSquare,
+              int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            double delta = deltas[offset + i];
+            double nextMean = beta1 * mean[offset + i] + (1 - beta1) * delta;
+            double nextSquare = beta2 * meanSquare[offset + i] + (1 - beta2) * (delta * delta);
+            mean[offset + i] = nextMean;
+            meanSquare[offset + i] = nextSquare;
+            parameters[parameterOffset + i] += stepSize * nextMean / (Math.sqrt(nextSquare * squareCorrection) + epsilon);
+            deltas[offset + i] = 0;
+        }
+    }
+
+    void applyDeltas(float[] parameters, int parameterOffset, float[] deltas, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            parameters[parameterOffset + i] += deltas[offset + i];
+            deltas[offset + i] = 0;
+        }
+    }
+
+    void momentum(float momentum, boolean nesterov, float[] parameters, int parameterOffset, float[] deltas,
+                  float[] velocity, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            float delta = deltas[offset + i];
+            float next = momentum * velocity[offset + i] + delta;
+            velocity[offset + i] = next;
+            parameters[parameterOffset + i] += nesterov ? momentum * next + delta : next;
+            deltas[offset + i] = 0;
+        }
+    }
+
+    void rmsProp(float decay, float rate, float epsilon, float[] parameters, int parameterOffset,
+                 float[] deltas, float[] meanSquare, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            float delta = deltas[offset + i];
+            float next = decay * meanSquare[offset + i] + (1 - decay) * (delta * delta);
+            meanSquare[offset + i] = next;
+            parameters[parameterOffset + i] += rate * delta / ((float) Math.sqrt(next) + epsilon);
+            deltas[offset + i] = 0;
+        }
+    }
+
+    void adam(float beta1, float beta2, float stepSize, float squareCorrection, float epsilon,
+              float[] parameters, int parameterOffset, float[] deltas, float[] mean, float[] meanSquare,
+              int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            float delta = deltas[offset + i];
+            float nextMean = beta1 * mean[offset + i] + (1 - beta1) * delta;
+            float nextSquare = beta2 * meanSquare[offset + i] + (1 - beta2) * (delta * delta);
+            mean[offset + i] = nextMean;
+            meanSquare[offset + i] = nextSquare;
+            parameters[parameterOffset + i] += stepSize * nextMean
+                    / ((float) Math.sqrt(nextSquare * squareCorrection) + epsilon);
+            deltas[offset + i] = 0;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package neuralnetwork;
+
+import java.util.Arrays;
+
+/* Keeps the most recent latencies in a fixed ring so that percentiles reflect current behaviour
+and recording never allocates. Safe to record from one thread while others read percentiles */
+public class LatencyRecorder {
+
+    private final long[] samples; // Ring of the latest latencies in nanoseconds
+    private long count; // Total latencies ever recorded
+
+    public LatencyRecorder(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Recorder must hold at least one latency");
+        samples = new long[capacity];
+    }
+
+    public synchronized void record(long nanoseconds) {
+        samples[(int) (count % samples.length)] = nanoseconds;
+        count++;
+    }
+
+    // Latency in nanoseconds below which the given fraction (e.g. 0.99) of retained samples fall, or 0 if none
+    public long percentile(double fraction) {
+        if (fraction < 0 || fraction > 1)
+            throw new IllegalArgumentException("Percentile must be a fraction between 0 and 1");
+        long[] retained;
+        synchronized (this) {
+            retained = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+        }
+        if (retained.length == 0)
+            return 0;
+        Arrays.sort(retained);
+        // Nearest-rank definition
+        int rank = (int) Math.ceil(fraction * retained.length);
+        return retained[Math.max(rank, 1) - 1];
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,338 @@
+package neuralnetwork;
+
+import jdk.incubator.foreign.ResourceScope;
+
+import java.util.Random;
+
+public class Layer {
+
+    private final Matrix weights; // Weights of fully connected layer
+    private final Matrix biases; // Bias of corresponding weight;
+    private final Matrix weightDeltas; // Current change to be applied to each weight
+    private final Matrix biasDeltas; // Current change to be applied to each bias
+    private Matrix inputNodes; // Input nodes to the current layer, one row per sample in the batch
+    private SparseMatrix sparseInputNodes; // Set in place of inputNodes while the current batch is sparse
+    private Matrix outputNodes; // Output nodes of the current layer, one row per sample in the batch
+    private Matrix newErrorTerms; // Error terms for preceding layer, one row per sample in the batch
+    /* Workspaces reused by every step so that steady-state training does not allocate. The
+    matrices above that describe the current batch are views into these */
+    private final BatchBuffer preActivationBuffer; // Weighted input sums before the activation function
+    private final BatchBuffer outputBuffer; // Backs outputNodes
+    private final BatchBuffer nodeErrorBuffer; // Error on each node before the activation function
+    private final BatchBuffer errorTermBuffer; // Backs newErrorTerms
+    private final ActivationFunction activationFunction; // Activation function for this layer
+    private final double learningRate; // Small constant to scale down weight delta
+    private final boolean sharedParameters; // Weights and biases are updated concurrently by other layers
+    private Optimizer optimizer; // Turns the deltas into changes to the weights and biases
+    // Values the optimizer keeps per weight and per bias, allocated once when it is set
+    private Matrix[] weightState;
+    private Matrix[] biasState;
+    private long updates; // Number of updates made with the current optimizer state
+    /* Rows of weightDeltas changed by sparse batches since the last update, so that updateWeights
+    can skip the others. Allocated by the first sparse batch */
+    private boolean[] rowPending;
+    private int[] pendingRows;
+    private int pendingRowCount;
+    private boolean densePending; // A dense batch may have changed any row of weightDeltas
+    private LayerMetrics metrics; // Time spent in each phase, or null when not measured
+
+    public Layer(int inputDims, int outputDims, ActivationFunction activationFunction, double learningRate) {
+        this(inputDims, outputDims, activationFunction, learningRate, Precision.DOUBLE);
+    }
+
+    /* Creates a layer that stores and computes everything in the given precision. Single-precision
+    layers start from the same random weights as double-precision ones, rounded to floats */
+    public Layer(int inputDims, int outputDims, ActivationFunction activationFunction, double learningRate,
+                 Precision precision) {
+        // Initialises all biases to 0.0
+        this(randomWeights(new Matrix(inputDims, outputDims, precision)), new Matrix(1, outputDims, precision),
+                activationFunction, learningRate, false);
+    }
+
+    /* Creates a layer whose weights, biases and deltas are held off-heap in the given scope, which
+    must be shared if the layer is used from several threads. In a confined scope its products run
+    on the calling thread only, never split across Gemm's pool. It starts from the same random
+    weights as a heap layer. Activations are per batch and stay on the heap */
+    public Layer(int inputDims, int outputDims, ActivationFunction activationFunction, double learningRate,
+                 Precision precision, ResourceScope scope) {
+        this(randomWeights(Matrix.allocateNative(inputDims, outputDims, precision, scope)),
+                Matrix.allocateNative(1, outputDims, precision, scope), activationFunction, learningRate, false);
+    }
+
+    /* Creates a layer around existing weights and biases, which are used directly rather than copied.
+    The layer takes its precision from them, and keeps its deltas off-heap if they are off-heap */
+    public Layer(Matrix weights, Matrix biases, ActivationFunction activationFunction, double learningRate) {
+        this(weights, biases, activationFunction, learningRate, false);
+    }
+
+    // Creates an independent copy of a layer with the same parameters and zeroed deltas
+    public Layer(Layer source) {
+        this(source, false);
+    }
+
+    /* Creates a layer with its own workspaces and deltas. If 'shareParameters' is set it uses the
+    source's weight and bias matrices themselves, and applies its deltas with the racy,
+    lock-free updates described in updateWeights; otherwise it gets copies */
+    public Layer(Layer source, boolean shareParameters) {
+        this(
+                shareParameters ? source.weights : source.weights.copy(),
+                shareParameters ? source.biases : source.biases.copy(),
+                source.activationFunction, // Activation functions hold no per-step state
+                source.learningRate,
+                shareParameters
+        );
+        setOptimizer(source.optimizer); // Each layer gets its own state, starting afresh
+    }
+
+    private Layer(Matrix weights, Matrix biases, ActivationFunction activationFunction, double learningRate,
+                  boolean sharedParameters) {
+        int inputDims = weights.getRows();
+        int outputDims = weights.getCols();
+        if (biases.getRows() != 1 || biases.getCols() != outputDims)
+            throw new IllegalArgumentException("Biases must be a single row with one value per output node");
+        weights.checkSamePrecision(biases);
+        Precision precision = weights.getPrecision();
+        this.weights = weights;
+        this.biases = biases;
+        this.sharedParameters = sharedParameters;
+
+        // Initialise matrices
+        weightDeltas = weights.newMatrix(inputDims, outputDims, precision);
+        biasDeltas = biases.newMatrix(1, outputDims, precision);
+        preActivationBuffer = new BatchBuffer(outputDims, 1, precision);
+        outputBuffer = new BatchBuffer(outputDims, 1, precision);
+        nodeErrorBuffer = new BatchBuffer(outputDims, 1, precision);
+        errorTermBuffer = new BatchBuffer(inputDims, 1, precision);
+        inputNodes = new Matrix(1, inputDims, precision);
+        outputNodes = outputBuffer.rows(1);
+
+        // Initialise preceding error values to 0
+        newErrorTerms = errorTermBuffer.rows(1);
+
+        // Set activation function
+        this.activationFunction = activationFunction;
+
+        // Set learning rate (alpha)
+        this.learningRate = learningRate;
+
+        setOptimizer(new SGD());
+    }
+
+    /* Sets how deltas are applied from the next update on. The optimizer's state is allocated here,
+    stored like the parameters, and starts at zero, as does its count of updates */
+    public void setOptimizer(Optimizer optimizer) {
+        int stateCount = optimizer.getStateCount();
+        weightState = new Matrix[stateCount];
+        biasState = new Matrix[stateCount];
+        for (int index = 0; index < stateCount; index++) {
+            weightState[index] = weights.newMatrix(weights.getRows(), weights.getCols(), weights.getPrecision());
+            biasState[index] = biases.newMatrix(1, biases.getCols(), biases.getPrecision());
+        }
+        this.optimizer = optimizer;
+        updates = 0;
+    }
+
+    // Initialise weights and sets them to be uniformly distributed in range [-1,1]
+    private static Matrix randomWeights(Matrix weights) {
+        Random random = new Random(0);
+        for (int row = 0; row < weights.getRows(); row++) {
+            for (int col = 0; col < weights.getCols(); col++) {
+                double weightValue = random.nextDouble() * 2 - 1;
+                weights.setElement(weightValue, row, col);
+            }
+        }
+        return weights;
+    }
+
+    // Feeds a batch of inputs (one sample per row) through the layer
+    public void feedForward(Matrix input) {
+        if (input.getCols() != weights.getRows())
+            throw new IllegalArgumentException("Layer input must have one column per input node");
+        if (input.getPrecision() != weights.getPrecision())
+            throw new IllegalArgumentException("Layer input must have the same precision as the layer");
+        long start = metrics != null ? System.nanoTime() : 0;
+        int batchSize = input.getRows();
+        inputNodes = input;
+        sparseInputNodes = null;
+        Matrix preActivations = preActivationBuffer.rows(batchSize);
+        inputNodes.multiplyInto(weights, preActivations);
+        activate(preActivations);
+        if (metrics != null)
+            metrics.addFeedForward(System.nanoTime() - start);
+    }
+
+    /* Feeds a batch of sparse inputs through the layer. Only the weights of each sample's non-zero
+    inputs are read, and backpropagate changes only those rows of the weights, so the cost of a
+    step grows with the number of non-zeros rather than the number of inputs */
+    public void feedForward(SparseMatrix input) {
+        if (input.getCols() != weights.getRows())
+            throw new IllegalArgumentException("Layer input must have one column per input node");
+        long start = metrics != null ? System.nanoTime() : 0;
+        inputNodes = null;
+        sparseInputNodes = input;
+        Matrix preActivations = preActivationBuffer.rows(input.getRows());
+        input.multiplyInto(weights, preActivations);
+        activate(preActivations);
+        if (metrics != null)
+            metrics.addFeedForward(System.nanoTime() - start);
+    }
+
+    private void activate(Matrix preActivations) {
+        int batchSize = preActivations.getRows();
+        preActivations.addToEachRow(biases); // Apply bias to every sample
+        outputNodes = outputBuffer.rows(batchSize);
+        activationFunction.function(preActivations, outputNodes);
+    }
+
+    /* Performs the backpropagation algorithm for the batch last fed forward, given the error
+    terms on each output node (one row per sample). Deltas are averaged over the batch */
+    public void backpropagate(Matrix errorTerms) {
+        backpropagate(errorTerms, outputNodes.getRows());
+    }
+
+    /* As above, but averages the deltas over 'totalBatchSize' samples. Used when one batch is
+    split across several replicas whose deltas are summed before a single update */
+    public void backpropagate(Matrix errorTerms, int totalBatchSize) {
+        int batchSize = outputNodes.getRows();
+        int columns = outputNodes.getCols();
+        if (errorTerms.getRows() != batchSize || errorTerms.getCols() != columns)
+            throw new IllegalArgumentException("Error terms must match the shape of the layer output");
+        long start = metrics != null ? System.nanoTime() : 0;
+        // Error on each node before the activation function is applied
+        Matrix nodeErrors = nodeErrorBuffer.rows(batchSize);
+        // Derivative is evaluated once per node and then scaled by that node's error
+        activationFunction.derivative(outputNodes, nodeErrors);
+        nodeErrors.multiplyElementsInto(errorTerms, nodeErrors);
+        double scale = learningRate / totalBatchSize;
+        if (sparseInputNodes != null) {
+            // Sparse input only comes from outside the network, where error terms would go unused
+            newErrorTerms = null;
+            // Zero inputs contribute nothing, so only the rows of the non-zero inputs change
+            sparseInputNodes.addTransposedProductInto(scale, nodeErrors, weightDeltas);
+            markPendingRows(sparseInputNodes.getColumnIndices());
+        } else {
+            Gemm gemm = Gemm.getDefault();
+            // Each preceding node receives the error of every node it feeds, weighted by the connecting weight
+            newErrorTerms = errorTermBuffer.rows(batchSize);
+            gemm.multiply(nodeErrors, false, weights, true, 1.0, false, newErrorTerms);
+            // Weight delta sums previous activation times error over the batch, i.e. inputNodes^T * nodeErrors
+            gemm.multiply(inputNodes, true, nodeErrors, false, scale, true, weightDeltas);
+            densePending = true;
+        }
+        // Bias delta is the error on each node summed over the batch
+        nodeErrors.addColumnSumsInto(scale, biasDeltas);
+        if (metrics != null)
+            metrics.addBackpropagate(System.nanoTime() - start);
+    }
+
+    /* Modify each weight by calculated weight delta, as the optimizer directs, in one pass over the
+    weights, deltas and optimizer state that also zeroes the deltas. When the parameters are
+    shared with layers on other threads the update takes no locks (Hogwild): each element is read
+    and written with opaque accesses, so no value is ever torn, but a concurrent update to the
+    same element may be lost. Sparse, small updates make such collisions rare enough not to hurt
+    convergence. Each such layer keeps its own optimizer state */
+    public void updateWeights() {
+        long start = metrics != null ? System.nanoTime() : 0;
+        updates++;
+        if (densePending || pendingRows == null) {
+            weights.update(optimizer, weightDeltas, weightState, 0, weights.getRows(), learningRate, updates,
+                    sharedParameters);
+        } else {
+            /* Only sparse batches since the last update, so the other rows of the deltas are still
+            zero. Their optimizer state is left as it is until their inputs are next active */
+            for (int index = 0; index < pendingRowCount; index++) {
+                weights.update(optimizer, weightDeltas, weightState, pendingRows[index], 1, learningRate, updates,
+                        sharedParameters);
+            }
+        }
+        biases.update(optimizer, biasDeltas, biasState, 0, 1, learningRate, updates, sharedParameters);
+        clearPendingRows();
+        if (metrics != null)
+            metrics.addUpdate(System.nanoTime() - start);
+    }
+
+    // Records that the given rows of weightDeltas may now hold changes
+    private void markPendingRows(int[] rows) {
+        if (pendingRows == null) {
+            rowPending = new boolean[weights.getRows()];
+            pendingRows = new int[weights.getRows()];
+        }
+        for (int row : rows) {
+            if (!rowPending[row]) {
+                rowPending[row] = true;
+                pendingRows[pendingRowCount++] = row;
+            }
+        }
+    }
+
+    private void clearPendingRows() {
+        for (int index = 0; index < pendingRowCount; index++)
+            rowPending[pendingRows[index]] = false;
+        pendingRowCount = 0;
+        densePending = false;
+    }
+
+    // Adds another layer's pending deltas to this layer's and clears them from the other layer
+    public void mergeDeltasFrom(Layer other) {
+        weightDeltas.sumInto(other.weightDeltas, weightDeltas);
+        biasDeltas.sumInto(other.biasDeltas, biasDeltas);
+        other.weightDeltas.fill(0.0);
+        other.biasDeltas.fill(0.0);
+        other.clearPendingRows();
+        densePending = true; // The merged deltas may be in any row
+    }
+
+    // Overwrites this layer's weights and biases with another layer's of the same shape
+    public void copyParametersFrom(Layer other) {
+        other.weights.copyInto(weights);
+        other.biases.copyInto(biases);
+    }
+
+    // Getter for the weights, one row per input node and one column per output node
+    public Matrix getWeights() {
+        return weights;
+    }
+
+    // Getter for the biases, a single row with one value per output node
+    public Matrix getBiases() {
+        return biases;
+    }
+
+    // Precision of the parameters and of every value the layer computes
+    public Precision getPrecision() {
+        return weights.getPrecision();
+    }
+
+    public ActivationFunction getActivationFunction() {
+        return activationFunction;
+    }
+
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
+    /* Starts adding the time this layer spends feeding forward, backpropagating and updating its
+    weights to the given counters; null stops it. Replicas made from this layer are not measured */
+    public void setMetrics(LayerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public LayerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    // Getter for outputNodes
+    public Matrix getOutputNodes() {
+        return outputNodes;
+    }
+
+    /* Getter for the error terms on this layer's inputs from the last backpropagation; null if the
+    batch was sparse, as such input has no preceding layer to pass them to */
+    public Matrix getNewErrorTerms() {
+        return newErrorTerms;
+    }
+}
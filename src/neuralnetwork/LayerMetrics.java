@@ -0,0 +1,42 @@
+package neuralnetwork;
+
+/* Time a layer has spent in each phase of training since its counters were last reset. A layer
+adds to these only while they are attached with Layer.setMetrics, and a detached layer pays
+nothing for the instrumentation. Not thread-safe: read it from the thread training the layer */
+public final class LayerMetrics {
+
+    private long feedForwardNanoseconds;
+    private long backpropagateNanoseconds;
+    private long updateNanoseconds;
+
+    void addFeedForward(long nanoseconds) {
+        feedForwardNanoseconds += nanoseconds;
+    }
+
+    void addBackpropagate(long nanoseconds) {
+        backpropagateNanoseconds += nanoseconds;
+    }
+
+    void addUpdate(long nanoseconds) {
+        updateNanoseconds += nanoseconds;
+    }
+
+    public long getFeedForwardNanoseconds() {
+        return feedForwardNanoseconds;
+    }
+
+    public long getBackpropagateNanoseconds() {
+        return backpropagateNanoseconds;
+    }
+
+    public long getUpdateNanoseconds() {
+        return updateNanoseconds;
+    }
+
+    // Sets every counter back to zero
+    public void reset() {
+        feedForwardNanoseconds = 0;
+        backpropagateNanoseconds = 0;
+        updateNanoseconds = 0;
+    }
+}
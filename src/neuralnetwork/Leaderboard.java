@@ -0,0 +1,75 @@
+package neuralnetwork;
+
+import java.util.List;
+
+/* Outcome of a hyperparameter search, best first. Candidates that trained for more epochs rank
+above those stopped earlier, since only losses after the same number of epochs are compared;
+among equals the lower validation loss ranks first */
+public final class Leaderboard {
+
+    private final List<Entry> entries;
+
+    Leaderboard(List<Entry> entries) {
+        this.entries = List.copyOf(entries);
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public Entry getBest() {
+        return entries.get(0);
+    }
+
+    // One line per candidate, best first
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int rank = 0; rank < entries.size(); rank++)
+            text.append(String.format("%3d. %s%n", rank + 1, entries.get(rank)));
+        return text.toString();
+    }
+
+    // One candidate, with its network as it was when it finished or was stopped
+    public static final class Entry {
+
+        private final Hyperparameters hyperparameters;
+        private final NeuralNetwork network;
+        private final int epochs; // Trained before finishing or being stopped
+        private final double loss; // Mean square error over the validation set after the last epoch
+        private final long nanoseconds; // Time spent training, excluding measuring the loss
+
+        Entry(Hyperparameters hyperparameters, NeuralNetwork network, int epochs, double loss, long nanoseconds) {
+            this.hyperparameters = hyperparameters;
+            this.network = network;
+            this.epochs = epochs;
+            this.loss = loss;
+            this.nanoseconds = nanoseconds;
+        }
+
+        public Hyperparameters getHyperparameters() {
+            return hyperparameters;
+        }
+
+        public NeuralNetwork getNetwork() {
+            return network;
+        }
+
+        public int getEpochs() {
+            return epochs;
+        }
+
+        public double getLoss() {
+            return loss;
+        }
+
+        public double getSeconds() {
+            return nanoseconds / 1e9;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("loss %.4e after %5d epochs (%.3f s): %s", loss, epochs, getSeconds(), hyperparameters);
+        }
+    }
+}
@@ -0,0 +1,745 @@
+package neuralnetwork;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class Matrix {
+
+    // Gives atomic, non-fenced access to elements that other threads update concurrently
+    private static final VarHandle elementHandle = MethodHandles.arrayElementVarHandle(double[].class);
+    private static final VarHandle floatElementHandle = MethodHandles.arrayElementVarHandle(float[].class);
+    private static final Kernels kernels = Kernels.get(); // Inner loops of the element-wise operations
+    // Copies of rows of off-heap matrices for the kernels to work on, one slot per operand
+    private static final ThreadLocal<double[][]> stagedRows = ThreadLocal.withInitial(() -> new double[3][0]);
+    private static final ThreadLocal<float[][]> stagedFloatRows = ThreadLocal.withInitial(() -> new float[3][0]);
+    // The rows of an optimizer's state matrices, gathered into the array its update takes
+    private static final ThreadLocal<double[][]> stateRows = ThreadLocal.withInitial(() -> new double[0][]);
+    private static final ThreadLocal<float[][]> floatStateRows = ThreadLocal.withInitial(() -> new float[0][]);
+    private static final int STATE_SLOT = 3; // Staging slot of an optimizer's first state matrix
+
+    /* Elements are stored row-major in a flat array. A matrix may be a view onto part of a
+    larger array, in which case element (row, col) lives at offset + row * stride + col. Exactly
+    one of the two arrays is set, depending on the matrix's precision, unless the matrix is
+    stored off-heap, in which case 'memory' holds the elements at the same positions */
+    private final double[] data;
+    private final float[] floatData;
+    private final NativeStorage memory;
+    private final int offset; // Index in data of element (0, 0)
+    private final int rows; // Number of rows in the matrix
+    private final int cols; // Number of columns in the matrix
+    private final int stride; // Distance in data between the starts of consecutive rows
+
+    // Construct blank matrix of shape (rows, cols)
+    public Matrix(int rows, int cols) {
+        this(rows, cols, Precision.DOUBLE);
+    }
+
+    // Construct blank matrix of shape (rows, cols) holding values of the given precision
+    public Matrix(int rows, int cols, Precision precision) {
+        if (rows < 0 || cols < 0)
+            throw new IllegalArgumentException("Matrix dimensions must not be negative");
+        // Java initialises each value to 0
+        this.data = precision == Precision.DOUBLE ? new double[size(rows, cols)] : null;
+        this.floatData = precision == Precision.FLOAT ? new float[size(rows, cols)] : null;
+        this.memory = null;
+        this.offset = 0;
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = cols;
+    }
+
+    // Constructor that creates new matrix from 2D array of doubles
+    public Matrix(ArrayList<ArrayList<Double>> values) {
+        int rows = values.size(); // Each ArrayList is a new row of doubles
+        int cols = rows == 0 ? 0 : values.get(0).size(); // Assume all rows are same length
+        this.data = new double[size(rows, cols)];
+        this.floatData = null;
+        this.memory = null;
+        this.offset = 0;
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = cols;
+        for (int row = 0; row < rows; row++) {
+            ArrayList<Double> rowValues = values.get(row);
+            if (rowValues.size() != cols) // If all are not same length, throw exception
+                throw new IllegalArgumentException("Every row must have same number of values");
+            for (int col = 0; col < cols; col++)
+                data[row * cols + col] = rowValues.get(col); // Unboxes each value
+        }
+    }
+
+    // Wraps an existing row-major array without copying it; changes to either are visible in both
+    public Matrix(double[] data, int rows, int cols) {
+        this(data, 0, rows, cols, cols);
+    }
+
+    // Wraps part of an existing array without copying it, with rows 'stride' elements apart
+    public Matrix(double[] data, int offset, int rows, int cols, int stride) {
+        this(data, null, null, offset, rows, cols, stride);
+        checkView(data.length);
+    }
+
+    // Wraps an existing row-major array of single-precision values without copying it
+    public Matrix(float[] data, int rows, int cols) {
+        this(data, 0, rows, cols, cols);
+    }
+
+    // Wraps part of an existing single-precision array without copying it, with rows 'stride' elements apart
+    public Matrix(float[] data, int offset, int rows, int cols, int stride) {
+        this(null, data, null, offset, rows, cols, stride);
+        checkView(data.length);
+    }
+
+    /* Wraps a memory segment holding rows * cols values of the given precision, row-major in
+    native byte order, without copying it. The segment may be allocated off-heap or mapped from a
+    file; a read-only segment gives a matrix whose values cannot be changed. Off-heap matrices
+    work with every Matrix operation, staging rows through small per-thread arrays where the
+    kernels need them, and are limited to 2^31 - 1 values like heap ones. Activation functions
+    read and write the backing arrays directly, so they need heap matrices; Layer and
+    InferenceModel apply them to heap buffers even when the parameters are off-heap */
+    public Matrix(MemorySegment segment, int rows, int cols, Precision precision) {
+        this(null, null, new NativeStorage(segment, precision), 0, rows, cols, cols);
+        if (memory.length() > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Segment holds too many values for a matrix");
+        checkView((int) memory.length());
+    }
+
+    /* Allocates a zeroed off-heap matrix whose memory is freed when the scope is closed. A confined
+    scope restricts the matrix to its owner thread, so products with it are never split across
+    Gemm's pool; use a shared scope to have them split, or if more than one thread will use it */
+    public static Matrix allocateNative(int rows, int cols, Precision precision, ResourceScope scope) {
+        if (rows < 0 || cols < 0)
+            throw new IllegalArgumentException("Matrix dimensions must not be negative");
+        if ((long) rows * cols > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Matrix has too many values");
+        return new Matrix(null, null, NativeStorage.allocate((long) rows * cols, precision, scope), 0, rows, cols, cols);
+    }
+
+    private Matrix(double[] data, float[] floatData, NativeStorage memory, int offset, int rows, int cols, int stride) {
+        this.data = data;
+        this.floatData = floatData;
+        this.memory = memory;
+        this.offset = offset;
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = stride;
+    }
+
+    // Number of values in a matrix of the given shape, which must fit in an array
+    private static int size(int rows, int cols) {
+        try {
+            return Math.multiplyExact(rows, cols);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Matrix has too many values for an array", e);
+        }
+    }
+
+    // Throws unless the shape is valid and every element lies inside a backing array of the given length
+    private void checkView(int length) {
+        if (rows < 0 || cols < 0)
+            throw new IllegalArgumentException("Matrix dimensions must not be negative");
+        if (stride < cols)
+            throw new IllegalArgumentException("Row stride must be at least the number of columns");
+        // Last element touched by the view must lie inside the array
+        if (offset < 0 || (rows > 0 && cols > 0 && offset + (long) (rows - 1) * stride + cols > length))
+            throw new IllegalArgumentException("Array is too small for the requested view");
+    }
+
+    // Getter for the number of rows in the matrix
+    public int getRows() {
+        return rows;
+    }
+
+    // Getter for the number of columns in the matrix
+    public int getCols() {
+        return cols;
+    }
+
+    // Whether the values are stored as doubles or floats
+    public Precision getPrecision() {
+        if (memory != null)
+            return memory.getPrecision();
+        return floatData != null ? Precision.FLOAT : Precision.DOUBLE;
+    }
+
+    // True if the values are held in off-heap memory rather than in an array
+    public boolean isNative() {
+        return memory != null;
+    }
+
+    // Getter for the backing array, which may be shared with other matrices
+    public double[] getData() {
+        if (memory != null)
+            throw new IllegalStateException("Matrix is stored off-heap");
+        if (data == null)
+            throw new IllegalStateException("Matrix holds single-precision values");
+        return data;
+    }
+
+    // Getter for the backing array of a single-precision matrix, which may be shared with other matrices
+    public float[] getFloatData() {
+        if (memory != null)
+            throw new IllegalStateException("Matrix is stored off-heap");
+        if (floatData == null)
+            throw new IllegalStateException("Matrix holds double-precision values");
+        return floatData;
+    }
+
+    // Off-heap storage, or null for a matrix backed by an array
+    NativeStorage getStorage() {
+        return memory;
+    }
+
+    // Getter for the index in the backing array of element (0, 0)
+    public int getOffset() {
+        return offset;
+    }
+
+    // Getter for the distance in the backing array between consecutive rows
+    public int getStride() {
+        return stride;
+    }
+
+    // True if the elements occupy one unbroken run of the backing array
+    public boolean isContiguous() {
+        return stride == cols || rows <= 1;
+    }
+
+    // Gets the value of a matrix at a given row and column
+    public double getElement(int row, int col) {
+        if (memory != null)
+            return memory.get(index(row, col));
+        return floatData != null ? floatData[index(row, col)] : data[index(row, col)];
+    }
+
+    // Sets the value of a matrix at a given row and column, rounding it if the matrix holds floats
+    public void setElement(double value, int row, int col) {
+        if (memory != null)
+            memory.set(index(row, col), value);
+        else if (floatData != null)
+            floatData[index(row, col)] = (float) value;
+        else
+            data[index(row, col)] = value;
+    }
+
+    // Position of (row, col) in the backing array
+    private int index(int row, int col) {
+        if (row < 0 || row >= rows)
+            throw new IndexOutOfBoundsException("Row out of range");
+        if (col < 0 || col >= cols)
+            throw new IndexOutOfBoundsException("Column out of range");
+        return offset + row * stride + col;
+    }
+
+    // Returns a matrix sharing this one's storage that covers the given block of it
+    public Matrix view(int row, int col, int viewRows, int viewCols) {
+        if (row < 0 || viewRows < 0 || row + viewRows > rows)
+            throw new IndexOutOfBoundsException("Row out of range");
+        if (col < 0 || viewCols < 0 || col + viewCols > cols)
+            throw new IndexOutOfBoundsException("Column out of range");
+        return new Matrix(data, floatData, memory, offset + row * stride + col, viewRows, viewCols, stride);
+    }
+
+    // Returns a 1xn view of a single row of this matrix
+    public Matrix row(int row) {
+        return view(row, 0, 1, cols);
+    }
+
+    // Sets every element to the given value
+    public void fill(double value) {
+        for (int row = 0; row < rows; row++) {
+            int start = offset + row * stride;
+            if (memory != null)
+                memory.fill(start, cols, value);
+            else if (floatData != null)
+                Arrays.fill(floatData, start, start + cols, (float) value);
+            else
+                Arrays.fill(data, start, start + cols, value);
+        }
+    }
+
+    // Copies the values of this matrix into another of the same shape, converting them if the precisions differ
+    public void copyInto(Matrix result) {
+        checkSameShape(result);
+        boolean single = isSingle();
+        boolean resultSingle = result.isSingle();
+        for (int row = 0; row < rows; row++) {
+            int source = rowStart(row);
+            int destination = result.rowStart(row);
+            if (single && resultSingle) {
+                float[] out = result.floatRow(row, 1, false);
+                System.arraycopy(floatRow(row, 0, true), source, out, destination, cols);
+                result.storeRow(row, out);
+            } else if (single) {
+                float[] in = floatRow(row, 0, true);
+                double[] out = result.doubleRow(row, 1, false);
+                for (int col = 0; col < cols; col++)
+                    out[destination + col] = in[source + col];
+                result.storeRow(row, out);
+            } else if (resultSingle) {
+                double[] in = doubleRow(row, 0, true);
+                float[] out = result.floatRow(row, 1, false);
+                for (int col = 0; col < cols; col++)
+                    out[destination + col] = (float) in[source + col];
+                result.storeRow(row, out);
+            } else {
+                double[] out = result.doubleRow(row, 1, false);
+                System.arraycopy(doubleRow(row, 0, true), source, out, destination, cols);
+                result.storeRow(row, out);
+            }
+        }
+    }
+
+    /* Returns a new contiguous matrix holding the same values as this one, stored the same way:
+    in an array, or off-heap in the same scope */
+    public Matrix copy() {
+        return copy(getPrecision());
+    }
+
+    // Returns a new contiguous matrix, stored the same way, holding this one's values converted to the given precision
+    public Matrix copy(Precision precision) {
+        Matrix result = newMatrix(rows, cols, precision);
+        copyInto(result);
+        return result;
+    }
+
+    // New zeroed matrix of the given shape and precision, off-heap in the same scope if this one is off-heap
+    Matrix newMatrix(int rows, int cols, Precision precision) {
+        if (memory == null)
+            return new Matrix(rows, cols, precision);
+        return new Matrix(null, null, memory.allocateLike((long) rows * cols, precision), 0, rows, cols, cols);
+    }
+
+    /* Calculates the cartesian product of this matrix and another
+     and returns the result as a new matrix */
+    public Matrix cartProd(Matrix other) {
+        return cartProd(other, Gemm.getDefault());
+    }
+
+    // Calculates the cartesian product using the given multiplication engine
+    public Matrix cartProd(Matrix other, Gemm gemm) {
+        Matrix result = new Matrix(rows, other.cols, getPrecision());
+        multiplyInto(other, result, gemm);
+        return result;
+    }
+
+    /* Writes the cartesian product of this matrix and another into 'result', which must
+    already have the right shape and must not share storage with either operand */
+    public void multiplyInto(Matrix other, Matrix result) {
+        multiplyInto(other, result, Gemm.getDefault());
+    }
+
+    // Writes the cartesian product into 'result' using the given multiplication engine
+    public void multiplyInto(Matrix other, Matrix result, Gemm gemm) {
+        gemm.multiply(this, false, other, false, 1.0, false, result);
+    }
+
+    public Matrix sum(Matrix other) {
+        Matrix result = new Matrix(rows, cols, getPrecision());
+        sumInto(other, result);
+        return result;
+    }
+
+    // Writes the element-wise sum of this matrix and another into 'result', which may be either operand
+    public void sumInto(Matrix other, Matrix result) {
+        // Test for correct dimensions
+        if (rows != other.rows)
+            throw new IllegalArgumentException("Matrix cannot be summed without same number of rows");
+        if (cols != other.cols)
+            throw new IllegalArgumentException("Matrix cannot be summed without same number of columns");
+        checkSameShape(result);
+        checkSamePrecision(other);
+        checkSamePrecision(result);
+        // Iterate over each element and sum them
+        for (int row = 0; row < rows; row++) {
+            if (isSingle()) {
+                float[] out = result.floatRow(row, 2, false);
+                kernels.add(floatRow(row, 0, true), rowStart(row), other.floatRow(row, 1, true), other.rowStart(row),
+                        out, result.rowStart(row), cols);
+                result.storeRow(row, out);
+            } else {
+                double[] out = result.doubleRow(row, 2, false);
+                kernels.add(doubleRow(row, 0, true), rowStart(row), other.doubleRow(row, 1, true), other.rowStart(row),
+                        out, result.rowStart(row), cols);
+                result.storeRow(row, out);
+            }
+        }
+    }
+
+    // Writes the element-wise difference of this matrix and another into 'result', which may be either operand
+    public void subtractInto(Matrix other, Matrix result) {
+        // Test for correct dimensions
+        if (rows != other.rows || cols != other.cols)
+            throw new IllegalArgumentException("Matrix cannot be subtracted without same dimensions");
+        checkSameShape(result);
+        checkSamePrecision(other);
+        checkSamePrecision(result);
+        for (int row = 0; row < rows; row++) {
+            if (isSingle()) {
+                float[] out = result.floatRow(row, 2, false);
+                kernels.subtract(floatRow(row, 0, true), rowStart(row), other.floatRow(row, 1, true), other.rowStart(row),
+                        out, result.rowStart(row), cols);
+                result.storeRow(row, out);
+            } else {
+                double[] out = result.doubleRow(row, 2, false);
+                kernels.subtract(doubleRow(row, 0, true), rowStart(row), other.doubleRow(row, 1, true), other.rowStart(row),
+                        out, result.rowStart(row), cols);
+                result.storeRow(row, out);
+            }
+        }
+    }
+
+    // Writes the element-wise product of this matrix and another into 'result', which may be either operand
+    public void multiplyElementsInto(Matrix other, Matrix result) {
+        // Test for correct dimensions
+        if (rows != other.rows || cols != other.cols)
+            throw new IllegalArgumentException("Matrix cannot be multiplied element-wise without same dimensions");
+        checkSameShape(result);
+        checkSamePrecision(other);
+        checkSamePrecision(result);
+        for (int row = 0; row < rows; row++) {
+            if (isSingle()) {
+                float[] out = result.floatRow(row, 2, false);
+                kernels.multiply(floatRow(row, 0, true), rowStart(row), other.floatRow(row, 1, true), other.rowStart(row),
+                        out, result.rowStart(row), cols);
+                result.storeRow(row, out);
+            } else {
+                double[] out = result.doubleRow(row, 2, false);
+                kernels.multiply(doubleRow(row, 0, true), rowStart(row), other.doubleRow(row, 1, true), other.rowStart(row),
+                        out, result.rowStart(row), cols);
+                result.storeRow(row, out);
+            }
+        }
+    }
+
+    /* Adds another matrix to this one in place using opaque reads and writes, for storage that
+    other threads update at the same time without locking. Each element is read and written
+    atomically, but the read-add-write is not, so concurrent additions to one element can be lost */
+    public void addOpaque(Matrix other) {
+        checkSameShape(other);
+        checkSamePrecision(other);
+        for (int row = 0; row < rows; row++) {
+            int thisRow = offset + row * stride;
+            int otherRow = other.offset + row * other.stride;
+            if (memory != null || other.memory != null) {
+                for (int col = 0; col < cols; col++)
+                    setOpaque(thisRow + col, getOpaque(thisRow + col) + other.getOpaque(otherRow + col));
+            } else if (floatData != null) {
+                for (int col = 0; col < cols; col++) {
+                    float current = (float) floatElementHandle.getOpaque(floatData, thisRow + col);
+                    floatElementHandle.setOpaque(floatData, thisRow + col, current + other.floatData[otherRow + col]);
+                }
+            } else {
+                for (int col = 0; col < cols; col++) {
+                    double current = (double) elementHandle.getOpaque(data, thisRow + col);
+                    elementHandle.setOpaque(data, thisRow + col, current + other.data[otherRow + col]);
+                }
+            }
+        }
+    }
+
+    // Adds a 1xn matrix to every row of this matrix in place, as when applying biases to a batch
+    public void addToEachRow(Matrix vector) {
+        if (vector.rows != 1 || vector.cols != cols)
+            throw new IllegalArgumentException("Vector must be a single row with the same number of columns");
+        checkSamePrecision(vector);
+        boolean single = isSingle();
+        // The vector is staged once for the whole matrix
+        float[] floatVector = single ? vector.floatRow(0, 1, true) : null;
+        double[] doubleVector = single ? null : vector.doubleRow(0, 1, true);
+        int vectorStart = vector.rowStart(0);
+        for (int row = 0; row < rows; row++) {
+            int start = rowStart(row);
+            if (single) {
+                float[] values = floatRow(row, 0, true);
+                kernels.add(values, start, floatVector, vectorStart, values, start, cols);
+                storeRow(row, values);
+            } else {
+                double[] values = doubleRow(row, 0, true);
+                kernels.add(values, start, doubleVector, vectorStart, values, start, cols);
+                storeRow(row, values);
+            }
+        }
+    }
+
+    // Adds 'scale' times the sum of each column of this matrix to the matching element of a 1xn matrix
+    public void addColumnSumsInto(double scale, Matrix vector) {
+        if (vector.rows != 1 || vector.cols != cols)
+            throw new IllegalArgumentException("Vector must be a single row with the same number of columns");
+        checkSamePrecision(vector);
+        boolean single = isSingle();
+        // The sums build up in one staged copy of the vector, which is stored back at the end
+        float[] floatVector = single ? vector.floatRow(0, 1, true) : null;
+        double[] doubleVector = single ? null : vector.doubleRow(0, 1, true);
+        int vectorStart = vector.rowStart(0);
+        // Walks row by row so that reads follow the storage order
+        for (int row = 0; row < rows; row++) {
+            if (single)
+                kernels.axpy((float) scale, floatRow(row, 0, true), rowStart(row), floatVector, vectorStart, cols);
+            else
+                kernels.axpy(scale, doubleRow(row, 0, true), rowStart(row), doubleVector, vectorStart, cols);
+        }
+        if (single)
+            vector.storeRow(0, floatVector);
+        else
+            vector.storeRow(0, doubleVector);
+    }
+
+    // result[resultRow] += scale * this[row], the row update of SparseMatrix's products
+    void addScaledRowInto(double scale, int row, Matrix result, int resultRow) {
+        if (isSingle()) {
+            float[] out = result.floatRow(resultRow, 1, true);
+            kernels.axpy((float) scale, floatRow(row, 0, true), rowStart(row), out, result.rowStart(resultRow), cols);
+            result.storeRow(resultRow, out);
+        } else {
+            double[] out = result.doubleRow(resultRow, 1, true);
+            kernels.axpy(scale, doubleRow(row, 0, true), rowStart(row), out, result.rowStart(resultRow), cols);
+            result.storeRow(resultRow, out);
+        }
+    }
+
+    /* Runs one step of an optimizer over 'count' rows of this matrix of parameters starting at
+    'row'. 'deltas' and each matrix of 'state' have this matrix's shape and precision and are laid
+    out alike, as a layer allocates them. Each row is updated in a single pass of the optimizer
+    and its deltas are left zeroed. With 'opaque' set the changes are worked out in a zeroed
+    staging row and then added as in addOpaque, for parameters that other threads update too */
+    void update(Optimizer optimizer, Matrix deltas, Matrix[] state, int row, int count, double learningRate,
+                long step, boolean opaque) {
+        checkSameShape(deltas);
+        checkSamePrecision(deltas);
+        if (state.length < optimizer.getStateCount())
+            throw new IllegalArgumentException("Optimizer needs " + optimizer.getStateCount() + " state matrices");
+        for (Matrix values : state) {
+            checkSamePrecision(values);
+            if (values.rows != rows || values.cols != cols || values.offset != deltas.offset
+                    || values.stride != deltas.stride || values.isNative() != deltas.isNative())
+                throw new IllegalArgumentException("Optimizer state must be laid out like the deltas");
+        }
+        if (row < 0 || count < 0 || row + count > rows)
+            throw new IndexOutOfBoundsException("Row out of range");
+        if (!opaque && memory == null && deltas.memory == null && (count == 1 || (stride == cols && deltas.stride == cols))) {
+            // The rows are one run in every array, so the optimizer covers them in a single call
+            updateRun(optimizer, deltas, state, row, count * cols, learningRate, step);
+            return;
+        }
+        if (isSingle()) {
+            updateFloat(optimizer, deltas, state, row, count, learningRate, step, opaque);
+            return;
+        }
+        double[][] stateValues = stateRows.get();
+        if (stateValues.length < state.length) {
+            stateValues = new double[state.length][];
+            stateRows.set(stateValues);
+        }
+        for (int r = row; r < row + count; r++) {
+            double[] deltaValues = deltas.doubleRow(r, 1, true);
+            for (int index = 0; index < state.length; index++)
+                stateValues[index] = state[index].doubleRow(r, STATE_SLOT + index, true);
+            double[] target;
+            int targetStart;
+            if (opaque) {
+                target = stagedRow(2, cols);
+                Arrays.fill(target, 0, cols, 0);
+                targetStart = 0;
+            } else {
+                target = doubleRow(r, 0, true);
+                targetStart = rowStart(r);
+            }
+            optimizer.update(target, targetStart, deltaValues, stateValues, deltas.rowStart(r), cols, learningRate, step);
+            if (opaque) {
+                int start = offset + r * stride;
+                for (int col = 0; col < cols; col++)
+                    setOpaque(start + col, getOpaque(start + col) + target[col]);
+            } else {
+                storeRow(r, target);
+            }
+            deltas.storeRow(r, deltaValues);
+            for (int index = 0; index < state.length; index++)
+                state[index].storeRow(r, stateValues[index]);
+        }
+    }
+
+    // Runs the optimizer over 'length' values starting at the first of 'row', held in arrays throughout
+    private void updateRun(Optimizer optimizer, Matrix deltas, Matrix[] state, int row, int length,
+                           double learningRate, long step) {
+        int start = offset + row * stride;
+        int deltaStart = deltas.offset + row * deltas.stride;
+        if (isSingle()) {
+            float[][] stateValues = floatStateRows.get();
+            if (stateValues.length < state.length) {
+                stateValues = new float[state.length][];
+                floatStateRows.set(stateValues);
+            }
+            for (int index = 0; index < state.length; index++)
+                stateValues[index] = state[index].floatData;
+            optimizer.update(floatData, start, deltas.floatData, stateValues, deltaStart, length, learningRate, step);
+        } else {
+            double[][] stateValues = stateRows.get();
+            if (stateValues.length < state.length) {
+                stateValues = new double[state.length][];
+                stateRows.set(stateValues);
+            }
+            for (int index = 0; index < state.length; index++)
+                stateValues[index] = state[index].data;
+            optimizer.update(data, start, deltas.data, stateValues, deltaStart, length, learningRate, step);
+        }
+    }
+
+    // Single-precision version of update
+    private void updateFloat(Optimizer optimizer, Matrix deltas, Matrix[] state, int row, int count,
+                             double learningRate, long step, boolean opaque) {
+        float[][] stateValues = floatStateRows.get();
+        if (stateValues.length < state.length) {
+            stateValues = new float[state.length][];
+            floatStateRows.set(stateValues);
+        }
+        for (int r = row; r < row + count; r++) {
+            float[] deltaValues = deltas.floatRow(r, 1, true);
+            for (int index = 0; index < state.length; index++)
+                stateValues[index] = state[index].floatRow(r, STATE_SLOT + index, true);
+            float[] target;
+            int targetStart;
+            if (opaque) {
+                target = stagedFloatRow(2, cols);
+                Arrays.fill(target, 0, cols, 0);
+                targetStart = 0;
+            } else {
+                target = floatRow(r, 0, true);
+                targetStart = rowStart(r);
+            }
+            optimizer.update(target, targetStart, deltaValues, stateValues, deltas.rowStart(r), cols, learningRate, step);
+            if (opaque) {
+                int start = offset + r * stride;
+                for (int col = 0; col < cols; col++)
+                    setOpaque(start + col, getOpaque(start + col) + target[col]);
+            } else {
+                storeRow(r, target);
+            }
+            deltas.storeRow(r, deltaValues);
+            for (int index = 0; index < state.length; index++)
+                state[index].storeRow(r, stateValues[index]);
+        }
+    }
+
+    private boolean isSingle() {
+        return getPrecision() == Precision.FLOAT;
+    }
+
+    private double getOpaque(int index) {
+        if (memory != null)
+            return memory.getOpaque(index);
+        return floatData != null ? (float) floatElementHandle.getOpaque(floatData, index)
+                : (double) elementHandle.getOpaque(data, index);
+    }
+
+    private void setOpaque(int index, double value) {
+        if (memory != null)
+            memory.setOpaque(index, value);
+        else if (floatData != null)
+            floatElementHandle.setOpaque(floatData, index, (float) value);
+        else
+            elementHandle.setOpaque(data, index, value);
+    }
+
+    /* Array holding the given row for the kernels: the backing array itself, or for an off-heap
+    matrix the staging array in 'slot', filled with the row's values if 'load' is set */
+    private double[] doubleRow(int row, int slot, boolean load) {
+        if (memory == null)
+            return data;
+        double[] staged = stagedRow(slot, cols);
+        if (load)
+            memory.load(offset + (long) row * stride, staged, 0, cols);
+        return staged;
+    }
+
+    private float[] floatRow(int row, int slot, boolean load) {
+        if (memory == null)
+            return floatData;
+        float[] staged = stagedFloatRow(slot, cols);
+        if (load)
+            memory.load(offset + (long) row * stride, staged, 0, cols);
+        return staged;
+    }
+
+    // This thread's staging array in 'slot', holding at least 'length' values
+    private static double[] stagedRow(int slot, int length) {
+        double[][] slots = stagedRows.get();
+        if (slot >= slots.length) {
+            // Only optimizers with many state matrices need more than the initial slots
+            slots = Arrays.copyOf(slots, slot + 1);
+            stagedRows.set(slots);
+        }
+        if (slots[slot] == null || slots[slot].length < length)
+            slots[slot] = new double[length];
+        return slots[slot];
+    }
+
+    private static float[] stagedFloatRow(int slot, int length) {
+        float[][] slots = stagedFloatRows.get();
+        if (slot >= slots.length) {
+            slots = Arrays.copyOf(slots, slot + 1);
+            stagedFloatRows.set(slots);
+        }
+        if (slots[slot] == null || slots[slot].length < length)
+            slots[slot] = new float[length];
+        return slots[slot];
+    }
+
+    // Index of the row's first element in the array returned for it above
+    private int rowStart(int row) {
+        return memory == null ? offset + row * stride : 0;
+    }
+
+    // Writes a staged row back to off-heap storage; nothing to do for an array-backed matrix
+    private void storeRow(int row, double[] values) {
+        if (memory != null)
+            memory.store(offset + (long) row * stride, values, 0, cols);
+    }
+
+    private void storeRow(int row, float[] values) {
+        if (memory != null)
+            memory.store(offset + (long) row * stride, values, 0, cols);
+    }
+
+    // Throws if the other matrix does not have the same number of rows and columns as this one
+    void checkSameShape(Matrix other) {
+        if (rows != other.rows || cols != other.cols)
+            throw new IllegalArgumentException("Matrices must have the same dimensions");
+    }
+
+    // Throws if the other matrix does not hold values of the same precision as this one
+    void checkSamePrecision(Matrix other) {
+        if (getPrecision() != other.getPrecision())
+            throw new IllegalArgumentException("Matrices must have the same precision");
+    }
+
+    // Override object default method for displaying matrix
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int row = 0; row < rows; row++) {
+            // Matches the format of the built-in toString method for ArrayList
+            result.append('[');
+            for (int col = 0; col < cols; col++) {
+                if (col > 0)
+                    result.append(", ");
+                int index = offset + row * stride + col;
+                if (memory != null && isSingle())
+                    result.append((float) memory.get(index));
+                else if (memory != null)
+                    result.append(memory.get(index));
+                else if (floatData != null)
+                    result.append(floatData[index]);
+                else
+                    result.append(data[index]);
+            }
+            result.append("]\n");
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,173 @@
+package neuralnetwork;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Front end that gathers prediction requests from many threads into batches. A dispatcher
+thread waits for the first request, then keeps collecting until it has 'maxBatchSize' samples
+or 'maxDelayMicros' have passed since that request arrived, and runs them through the model as
+one batched forward pass. Callers block only on their own result */
+public class MicroBatcher implements AutoCloseable {
+
+    private static final int LATENCY_WINDOW = 8192; // Requests used for latency percentiles
+
+    private final InferenceModel model;
+    private final int maxBatchSize; // Samples beyond which a batch is dispatched at once
+    private final long maxDelayNanos; // Longest a request waits for others to join its batch
+    private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private final LatencyRecorder latencies = new LatencyRecorder(LATENCY_WINDOW);
+    private final AtomicLong completedSamples = new AtomicLong();
+    private final AtomicLong completedBatches = new AtomicLong();
+    private final long startTime = System.nanoTime();
+
+    // A pending prediction: a copy of its input rows, when it arrived and where its result goes
+    private static final class Request {
+        private final Matrix input;
+        private final long arrivalTime;
+        private final CompletableFuture<Matrix> result = new CompletableFuture<>();
+
+        Request(Matrix input) {
+            this.input = input;
+            this.arrivalTime = System.nanoTime();
+        }
+    }
+
+    public MicroBatcher(InferenceModel model, int maxBatchSize, long maxDelayMicros) {
+        if (maxBatchSize < 1 || maxDelayMicros < 0)
+            throw new IllegalArgumentException("Batch size must be positive and delay must not be negative");
+        this.model = model;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        dispatcher = new Thread(this::dispatch, "micro-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /* Queues the samples in 'input' (one per row) and returns their predictions once their batch has
+    run. The input is copied before this returns, so the caller may reuse it straight away; an input
+    that cannot be read on this thread, such as one confined to another, fails here */
+    public CompletableFuture<Matrix> submit(Matrix input) {
+        if (input.getRows() < 1 || input.getCols() != model.getInputSize())
+            throw new IllegalArgumentException("Input must be at least one row with one column per input node");
+        Matrix copy = new Matrix(input.getRows(), input.getCols(), model.getPrecision()); // copyInto converts
+        input.copyInto(copy);
+        Request request = new Request(copy);
+        queue.add(request);
+        // If close() has already drained the queue, nothing else will answer this request
+        if (!running && queue.remove(request))
+            request.result.completeExceptionally(new IllegalStateException("Batcher is closed"));
+        return request.result;
+    }
+
+    // Blocking form of submit
+    public Matrix predict(Matrix input) {
+        return submit(input).join();
+    }
+
+    // Median time from submission to result, in microseconds, over recent requests
+    public double getLatencyP50Micros() {
+        return latencies.percentile(0.50) / 1e3;
+    }
+
+    // 99th percentile time from submission to result, in microseconds, over recent requests
+    public double getLatencyP99Micros() {
+        return latencies.percentile(0.99) / 1e3;
+    }
+
+    // Samples predicted per second since the batcher started
+    public double getThroughput() {
+        return completedSamples.get() / ((System.nanoTime() - startTime) / 1e9);
+    }
+
+    public long getCompletedSamples() {
+        return completedSamples.get();
+    }
+
+    public long getCompletedBatches() {
+        return completedBatches.get();
+    }
+
+    // Stops the dispatcher; requests that have not run yet fail
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        try {
+            dispatcher.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        Request request;
+        while ((request = queue.poll()) != null)
+            request.result.completeExceptionally(new IllegalStateException("Batcher is closed"));
+    }
+
+    private void dispatch() {
+        ArrayList<Request> batch = new ArrayList<>();
+        while (running) {
+            Request first;
+            try {
+                first = queue.take();
+            } catch (InterruptedException exception) {
+                continue; // Woken by close(), so the loop condition ends the thread
+            }
+            batch.add(first);
+            int samples = first.input.getRows();
+            long deadline = first.arrivalTime + maxDelayNanos;
+            try {
+                // Keep collecting until the batch is full or the oldest request has waited long enough
+                while (samples < maxBatchSize) {
+                    Request next = queue.peek();
+                    if (next != null && samples + next.input.getRows() > maxBatchSize)
+                        break; // Would overflow the batch, so it starts the next one
+                    long remaining = deadline - System.nanoTime();
+                    next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                    samples += next.input.getRows();
+                }
+            } catch (InterruptedException exception) {
+                // Requests already taken from the queue are still answered before stopping
+            }
+            run(batch, samples);
+        }
+    }
+
+    /* Stacks the requests' rows, runs one forward pass and hands each request its rows of the output.
+    Anything thrown fails this batch's requests only, and the dispatcher carries on with the next */
+    private void run(ArrayList<Request> batch, int samples) {
+        Matrix output;
+        try {
+            Matrix input = new Matrix(samples, model.getInputSize(), model.getPrecision());
+            int row = 0;
+            for (Request request : batch) {
+                request.input.copyInto(input.view(row, 0, request.input.getRows(), input.getCols()));
+                row += request.input.getRows();
+            }
+            output = model.predict(input);
+        } catch (Throwable exception) {
+            for (Request request : batch)
+                request.result.completeExceptionally(exception);
+            batch.clear();
+            return;
+        }
+        int row = 0;
+        long now = System.nanoTime();
+        for (Request request : batch) {
+            int rows = request.input.getRows();
+            request.result.complete(output.view(row, 0, rows, output.getCols()));
+            latencies.record(now - request.arrivalTime);
+            row += rows;
+        }
+        batch.clear();
+        completedSamples.addAndGet(samples);
+        completedBatches.incrementAndGet();
+    }
+}
@@ -0,0 +1,383 @@
+package neuralnetwork;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/* Binary checkpoint of a network's topology, activation functions, learning rates, weights and
+biases. Everything is little-endian:
+
+    int magic ("JNNC"), int version, int layer count, int bytes per parameter (4 or 8)
+    per layer: int input size, int output size, int activation type, int activation flags,
+               double learning rate
+    zero padding to a multiple of 8 bytes
+    per layer: input size * output size weights (row-major), then output size biases
+
+Parameters are stored as doubles or, to halve the file, as floats. Version 1 files lack the bytes
+per parameter field and always hold doubles. The parameter block is 8-byte aligned so a
+memory-mapped file can be read as doubles or floats in place, which map does to serve a model
+straight from the file */
+public final class ModelCheckpoint {
+
+    private static final int MAGIC = 0x434E4E4A; // "JNNC" when read as little-endian bytes
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER_BYTES = 4 * Integer.BYTES;
+    private static final int VERSION_1_HEADER_BYTES = 3 * Integer.BYTES; // No bytes per parameter field
+    private static final int LAYER_HEADER_BYTES = 4 * Integer.BYTES + Double.BYTES;
+    private static final int WRITE_CHUNK_BYTES = 1 << 16; // Size of the buffer parameters are written through
+
+    // Activation types as stored in the file
+    private static final int SIGMOID = 1;
+    private static final int TANH = 2;
+    private static final int SOFTMAX = 3;
+    private static final int APPROXIMATE_FLAG = 1; // Activation uses its FastMath approximation
+
+    private ModelCheckpoint() {
+    }
+
+    /* Writes the network to 'file', storing parameters in the network's own precision. The data goes
+    to a temporary file that then replaces 'file', so a crash part way through never leaves a
+    truncated checkpoint behind */
+    public static void save(NeuralNetwork network, Path file) throws IOException {
+        save(network, file, network.getPrecision());
+    }
+
+    // Writes the network to 'file', storing parameters in the given precision (rounding them if needed)
+    public static void save(NeuralNetwork network, Path file, Precision storage) throws IOException {
+        save(new Snapshot(network, false), file, storage);
+    }
+
+    /* What a checkpoint holds of each layer: its settings, and its weights and biases either as the
+    layer's own matrices or as heap copies. A copy is independent of the network, so it can be
+    written from another thread while training carries on, even if the parameters are off-heap in
+    a scope confined to the training thread */
+    static final class Snapshot {
+
+        private final Precision precision;
+        private final Matrix[] weights;
+        private final Matrix[] biases;
+        private final ActivationFunction[] activations;
+        private final double[] learningRates;
+
+        Snapshot(NeuralNetwork network, boolean copy) {
+            int layers = network.getLayerCount();
+            precision = network.getPrecision();
+            weights = new Matrix[layers];
+            biases = new Matrix[layers];
+            activations = new ActivationFunction[layers];
+            learningRates = new double[layers];
+            for (int index = 0; index < layers; index++) {
+                Layer layer = network.getLayer(index);
+                weights[index] = copy ? heapCopy(layer.getWeights()) : layer.getWeights();
+                biases[index] = copy ? heapCopy(layer.getBiases()) : layer.getBiases();
+                activations[index] = layer.getActivationFunction();
+                learningRates[index] = layer.getLearningRate();
+            }
+        }
+
+        private static Matrix heapCopy(Matrix matrix) {
+            Matrix copy = new Matrix(matrix.getRows(), matrix.getCols(), matrix.getPrecision());
+            matrix.copyInto(copy);
+            return copy;
+        }
+
+        Precision getPrecision() {
+            return precision;
+        }
+    }
+
+    // Copies the network's parameters to the heap, on the thread that trains it
+    static Snapshot snapshot(NeuralNetwork network) {
+        return new Snapshot(network, true);
+    }
+
+    static void save(Snapshot snapshot, Path file, Precision storage) throws IOException {
+        int layers = snapshot.weights.length;
+        ByteBuffer header = ByteBuffer.allocate(parameterOffset(FILE_HEADER_BYTES, layers)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(layers).putInt(storage.getBytes());
+        for (int index = 0; index < layers; index++) {
+            ActivationFunction activation = snapshot.activations[index];
+            header.putInt(snapshot.weights[index].getRows());
+            header.putInt(snapshot.weights[index].getCols());
+            header.putInt(activationType(activation));
+            header.putInt(activationFlags(activation));
+            header.putDouble(snapshot.learningRates[index]);
+        }
+        header.position(header.capacity()); // Remaining bytes are the zero padding
+        header.flip();
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            ByteBuffer chunk = ByteBuffer.allocateDirect(WRITE_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int index = 0; index < layers; index++) {
+                writeMatrix(channel, chunk, snapshot.weights[index], storage);
+                writeMatrix(channel, chunk, snapshot.biases[index], storage);
+            }
+            if (chunk.position() > 0) {
+                chunk.flip();
+                writeFully(channel, chunk);
+            }
+            channel.force(false);
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(temporary);
+            throw exception;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Reads a network written by save, in the precision its parameters were stored in
+    public static NeuralNetwork load(Path file) throws IOException {
+        return load(file, null);
+    }
+
+    /* Reads a network written by save, converting its parameters to the given precision, or keeping
+    the stored precision if it is null. The file is memory-mapped, and when no conversion is needed
+    each parameter block is bulk-transferred straight from the mapping into the layer's matrices */
+    public static NeuralNetwork load(Path file, Precision precision) throws IOException {
+        Header header;
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            header = readHeader(channel, file);
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (precision == null)
+            precision = header.storage;
+        ByteBuffer buffer = mapping.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(header.parameterOffset);
+        DoubleBuffer doubles = header.storage == Precision.DOUBLE ? buffer.asDoubleBuffer() : null;
+        FloatBuffer floats = header.storage == Precision.FLOAT ? buffer.asFloatBuffer() : null;
+        ArrayList<Layer> network = new ArrayList<>();
+        for (int index = 0; index < header.layers; index++) {
+            Matrix weights = new Matrix(header.inputSizes[index], header.outputSizes[index], precision);
+            Matrix biases = new Matrix(1, header.outputSizes[index], precision);
+            readMatrix(doubles, floats, weights);
+            readMatrix(doubles, floats, biases);
+            network.add(new Layer(weights, biases, header.activations[index], header.learningRates[index]));
+        }
+        return new NeuralNetwork(network);
+    }
+
+    /* Reads a network written by save into off-heap memory allocated in the given scope, converting
+    its parameters to the given precision (or keeping the stored one if it is null). Parameters are
+    copied from a mapping of the file without passing through the heap, so the network may be
+    larger than the heap; its deltas are off-heap too. In a confined scope the network's products
+    run on the calling thread only, as in NeuralNetwork's off-heap constructor. Needs the
+    jdk.incubator.foreign module */
+    public static NeuralNetwork load(Path file, Precision precision, ResourceScope scope) throws IOException {
+        MemorySegment segment = mapParameters(file, scope);
+        Header header = readHeader(file);
+        if (precision == null)
+            precision = header.storage;
+        ArrayList<Layer> network = new ArrayList<>();
+        long position = header.parameterOffset;
+        for (int index = 0; index < header.layers; index++) {
+            Matrix weights = slice(segment, position, header.inputSizes[index], header.outputSizes[index], header.storage);
+            position += (long) header.inputSizes[index] * header.outputSizes[index] * header.storage.getBytes();
+            Matrix biases = slice(segment, position, 1, header.outputSizes[index], header.storage);
+            position += (long) header.outputSizes[index] * header.storage.getBytes();
+            // Copies of mapped matrices are allocated off-heap in the mapping's scope
+            network.add(new Layer(weights.copy(precision), biases.copy(precision),
+                    header.activations[index], header.learningRates[index]));
+        }
+        return new NeuralNetwork(network);
+    }
+
+    /* Maps a checkpoint read-only for prediction, using the parameters in place in the file's pages.
+    Every process that maps the same file shares one copy of those pages through the operating
+    system's page cache, so several serving JVMs on one host hold a large model in memory once. The
+    mapping lasts until the scope is closed, which must be shared for predictions on several
+    threads or for large products to be split across Gemm's pool; in a confined scope predictions
+    run on the calling thread only. Needs the jdk.incubator.foreign module */
+    public static InferenceModel map(Path file, ResourceScope scope) throws IOException {
+        MemorySegment segment = mapParameters(file, scope);
+        Header header = readHeader(file);
+        Matrix[] weights = new Matrix[header.layers];
+        Matrix[] biases = new Matrix[header.layers];
+        long position = header.parameterOffset;
+        for (int index = 0; index < header.layers; index++) {
+            weights[index] = slice(segment, position, header.inputSizes[index], header.outputSizes[index], header.storage);
+            position += (long) header.inputSizes[index] * header.outputSizes[index] * header.storage.getBytes();
+            biases[index] = slice(segment, position, 1, header.outputSizes[index], header.storage);
+            position += (long) header.outputSizes[index] * header.storage.getBytes();
+        }
+        return new InferenceModel(weights, biases, header.activations, Gemm.getDefault());
+    }
+
+    // Maps the whole file read-only after checking that its parameters can be used in place
+    private static MemorySegment mapParameters(Path file, ResourceScope scope) throws IOException {
+        // Off-heap matrices use native byte order and the file is little-endian
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN)
+            throw new IOException("Checkpoints can only be mapped on little-endian platforms");
+        return MemorySegment.mapFile(file, 0, Files.size(file), FileChannel.MapMode.READ_ONLY, scope);
+    }
+
+    // Matrix over the stored values starting 'position' bytes into the mapping
+    private static Matrix slice(MemorySegment segment, long position, int rows, int cols, Precision storage) {
+        return new Matrix(segment.asSlice(position, (long) rows * cols * storage.getBytes()), rows, cols, storage);
+    }
+
+    // Topology and parameter layout of a checkpoint, as read from its header
+    private static final class Header {
+        int layers;
+        int[] inputSizes;
+        int[] outputSizes;
+        ActivationFunction[] activations;
+        double[] learningRates;
+        Precision storage; // Precision the parameters are stored in
+        int parameterOffset; // Byte offset of the first weight
+    }
+
+    private static Header readHeader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readHeader(channel, file);
+        }
+    }
+
+    // Reads and checks the header, including that the file is exactly as long as it describes
+    private static Header readHeader(FileChannel channel, Path file) throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = readFully(channel, 0, (int) Math.min(size, FILE_HEADER_BYTES));
+        if (buffer.remaining() < VERSION_1_HEADER_BYTES || buffer.getInt() != MAGIC)
+            throw new IOException("Not a network checkpoint: " + file);
+        int version = buffer.getInt();
+        if (version < 1 || version > VERSION)
+            throw new IOException("Unsupported checkpoint version " + version);
+        Header header = new Header();
+        header.layers = buffer.getInt();
+        int fileHeaderBytes = version >= 2 ? FILE_HEADER_BYTES : VERSION_1_HEADER_BYTES;
+        if (header.layers < 1 || fileHeaderBytes + (long) header.layers * LAYER_HEADER_BYTES > size)
+            throw new IOException("Corrupt checkpoint header");
+        header.storage = Precision.DOUBLE;
+        if (version >= 2) {
+            int bytes = buffer.getInt();
+            if (bytes != Double.BYTES && bytes != Float.BYTES)
+                throw new IOException("Corrupt checkpoint header");
+            header.storage = bytes == Float.BYTES ? Precision.FLOAT : Precision.DOUBLE;
+        }
+
+        buffer = readFully(channel, fileHeaderBytes, header.layers * LAYER_HEADER_BYTES);
+        header.inputSizes = new int[header.layers];
+        header.outputSizes = new int[header.layers];
+        header.activations = new ActivationFunction[header.layers];
+        header.learningRates = new double[header.layers];
+        long parameterCount = 0;
+        for (int index = 0; index < header.layers; index++) {
+            header.inputSizes[index] = buffer.getInt();
+            header.outputSizes[index] = buffer.getInt();
+            int type = buffer.getInt();
+            int flags = buffer.getInt();
+            header.learningRates[index] = buffer.getDouble();
+            if (header.inputSizes[index] < 1 || header.outputSizes[index] < 1)
+                throw new IOException("Corrupt checkpoint header");
+            header.activations[index] = createActivation(type, flags);
+            parameterCount += ((long) header.inputSizes[index] + 1) * header.outputSizes[index];
+        }
+        header.parameterOffset = parameterOffset(fileHeaderBytes, header.layers);
+        if (size != header.parameterOffset + parameterCount * header.storage.getBytes())
+            throw new IOException("Checkpoint size does not match its header");
+        return header;
+    }
+
+    // Reads 'length' bytes starting at 'position' into a new little-endian buffer ready to be read
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of checkpoint");
+        }
+        return buffer.flip();
+    }
+
+    // Byte offset of the first weight, i.e. the header size rounded up to a multiple of 8
+    private static int parameterOffset(int fileHeaderBytes, int layers) {
+        int headerBytes = fileHeaderBytes + layers * LAYER_HEADER_BYTES;
+        return (headerBytes + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    /* Fills a new contiguous matrix from whichever of the two buffers holds the parameters, in bulk
+    when the stored precision is the matrix's and converting value by value otherwise */
+    private static void readMatrix(DoubleBuffer doubles, FloatBuffer floats, Matrix matrix) {
+        boolean single = matrix.getPrecision() == Precision.FLOAT;
+        if (doubles != null && !single) {
+            doubles.get(matrix.getData());
+        } else if (floats != null && single) {
+            floats.get(matrix.getFloatData());
+        } else if (doubles != null) {
+            float[] values = matrix.getFloatData();
+            for (int index = 0; index < values.length; index++)
+                values[index] = (float) doubles.get();
+        } else {
+            double[] values = matrix.getData();
+            for (int index = 0; index < values.length; index++)
+                values[index] = floats.get();
+        }
+    }
+
+    // Appends the matrix's values row by row through the chunk buffer, flushing it when full
+    private static void writeMatrix(FileChannel channel, ByteBuffer chunk, Matrix matrix, Precision storage)
+            throws IOException {
+        for (int row = 0; row < matrix.getRows(); row++) {
+            for (int col = 0; col < matrix.getCols(); col++) {
+                if (chunk.remaining() < storage.getBytes()) {
+                    chunk.flip();
+                    writeFully(channel, chunk);
+                    chunk.clear();
+                }
+                if (storage == Precision.FLOAT)
+                    chunk.putFloat((float) matrix.getElement(row, col));
+                else
+                    chunk.putDouble(matrix.getElement(row, col));
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static int activationType(ActivationFunction activation) {
+        if (activation instanceof Sigmoid)
+            return SIGMOID;
+        if (activation instanceof Tanh)
+            return TANH;
+        if (activation instanceof Softmax)
+            return SOFTMAX;
+        throw new IllegalArgumentException("Cannot save activation function " + activation.getClass().getName());
+    }
+
+    private static int activationFlags(ActivationFunction activation) {
+        boolean approximate = activation instanceof Sigmoid ? ((Sigmoid) activation).isApproximate()
+                : activation instanceof Tanh ? ((Tanh) activation).isApproximate()
+                : ((Softmax) activation).isApproximate();
+        return approximate ? APPROXIMATE_FLAG : 0;
+    }
+
+    private static ActivationFunction createActivation(int type, int flags) throws IOException {
+        boolean approximate = (flags & APPROXIMATE_FLAG) != 0;
+        switch (type) {
+            case SIGMOID:
+                return new Sigmoid(approximate);
+            case TANH:
+                return new Tanh(approximate);
+            case SOFTMAX:
+                return new Softmax(approximate);
+            default:
+                throw new IOException("Unknown activation type " + type);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package neuralnetwork;
+
+/* Gradient descent with momentum: each parameter keeps a velocity, a decaying sum of its past
+deltas, and moves by that instead of by its latest delta. Steps along directions the gradient
+keeps pointing in grow, while oscillating components cancel out */
+public class Momentum implements Optimizer {
+
+    private static final Kernels kernels = Kernels.get();
+    private final double momentum; // Fraction of the velocity carried into the next step
+
+    public Momentum() {
+        this(0.9);
+    }
+
+    public Momentum(double momentum) {
+        if (!(momentum >= 0 && momentum < 1))
+            throw new IllegalArgumentException("Momentum must be at least 0 and less than 1");
+        this.momentum = momentum;
+    }
+
+    @Override
+    public int getStateCount() {
+        return 1;
+    }
+
+    @Override
+    public void update(double[] parameters, int parameterOffset, double[] deltas, double[][] state, int offset,
+                       int length, double learningRate, long step) {
+        kernels.momentum(momentum, false, parameters, parameterOffset, deltas, state[0], offset, length);
+    }
+
+    @Override
+    public void update(float[] parameters, int parameterOffset, float[] deltas, float[][] state, int offset,
+                       int length, double learningRate, long step) {
+        kernels.momentum((float) momentum, false, parameters, parameterOffset, deltas, state[0], offset, length);
+    }
+
+    public double getMomentum() {
+        return momentum;
+    }
+}
@@ -0,0 +1,116 @@
+package neuralnetwork;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemoryLayout;
+import jdk.incubator.foreign.MemoryLayouts;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import java.lang.invoke.VarHandle;
+
+/* Off-heap backing store of a Matrix: a memory segment holding values of one precision in native
+byte order, addressed by element index. Kept apart from Matrix so that the classes of the
+incubating jdk.incubator.foreign module are only loaded by programs that create off-heap
+matrices (run with --add-modules jdk.incubator.foreign). Bulk transfers to and from arrays let
+Matrix and Gemm run their array kernels on staged copies of rows */
+final class NativeStorage {
+
+    private static final long ALIGNMENT = 64; // Cache line, so rows of aligned widths start on a boundary
+    // Gives atomic, non-fenced access to elements that other threads update concurrently
+    private static final VarHandle doubleHandle = MemoryLayout.sequenceLayout(MemoryLayouts.JAVA_DOUBLE)
+            .varHandle(double.class, MemoryLayout.PathElement.sequenceElement());
+    private static final VarHandle floatHandle = MemoryLayout.sequenceLayout(MemoryLayouts.JAVA_FLOAT)
+            .varHandle(float.class, MemoryLayout.PathElement.sequenceElement());
+
+    private final MemorySegment segment;
+    private final Precision precision;
+
+    NativeStorage(MemorySegment segment, Precision precision) {
+        if (segment.byteSize() % precision.getBytes() != 0)
+            throw new IllegalArgumentException("Segment size must be a whole number of values");
+        this.segment = segment;
+        this.precision = precision;
+    }
+
+    // Zeroed storage for the given number of values, freed when the scope is closed
+    static NativeStorage allocate(long length, Precision precision, ResourceScope scope) {
+        return new NativeStorage(MemorySegment.allocateNative(length * precision.getBytes(), ALIGNMENT, scope), precision);
+    }
+
+    // Zeroed storage of the given length and precision in the same scope as this one
+    NativeStorage allocateLike(long length, Precision precision) {
+        return allocate(length, precision, segment.scope());
+    }
+
+    // Whether only the thread that created the scope may access the memory
+    boolean isConfined() {
+        return segment.scope().ownerThread() != null;
+    }
+
+    Precision getPrecision() {
+        return precision;
+    }
+
+    // Number of values the segment holds
+    long length() {
+        return segment.byteSize() / precision.getBytes();
+    }
+
+    double get(long index) {
+        return precision == Precision.FLOAT ? MemoryAccess.getFloatAtIndex(segment, index)
+                : MemoryAccess.getDoubleAtIndex(segment, index);
+    }
+
+    // Stores a value, rounding it if the storage holds floats
+    void set(long index, double value) {
+        if (precision == Precision.FLOAT)
+            MemoryAccess.setFloatAtIndex(segment, index, (float) value);
+        else
+            MemoryAccess.setDoubleAtIndex(segment, index, value);
+    }
+
+    double getOpaque(long index) {
+        return precision == Precision.FLOAT ? (float) floatHandle.getOpaque(segment, index)
+                : (double) doubleHandle.getOpaque(segment, index);
+    }
+
+    void setOpaque(long index, double value) {
+        if (precision == Precision.FLOAT)
+            floatHandle.setOpaque(segment, index, (float) value);
+        else
+            doubleHandle.setOpaque(segment, index, value);
+    }
+
+    // Sets 'length' values starting at 'index'
+    void fill(long index, int length, double value) {
+        if (Double.doubleToRawLongBits(value) == 0) {
+            // Positive zero is all-zero bytes in either precision
+            segment.asSlice(index * precision.getBytes(), (long) length * precision.getBytes()).fill((byte) 0);
+        } else {
+            for (int i = 0; i < length; i++)
+                set(index + i, value);
+        }
+    }
+
+    // Copies 'length' doubles starting at 'index' into the array
+    void load(long index, double[] array, int arrayOffset, int length) {
+        MemorySegment.ofArray(array).asSlice((long) arrayOffset * Double.BYTES, (long) length * Double.BYTES)
+                .copyFrom(segment.asSlice(index * Double.BYTES, (long) length * Double.BYTES));
+    }
+
+    void load(long index, float[] array, int arrayOffset, int length) {
+        MemorySegment.ofArray(array).asSlice((long) arrayOffset * Float.BYTES, (long) length * Float.BYTES)
+                .copyFrom(segment.asSlice(index * Float.BYTES, (long) length * Float.BYTES));
+    }
+
+    // Copies 'length' doubles from the array into the storage starting at 'index'
+    void store(long index, double[] array, int arrayOffset, int length) {
+        segment.asSlice(index * Double.BYTES, (long) length * Double.BYTES)
+                .copyFrom(MemorySegment.ofArray(array).asSlice((long) arrayOffset * Double.BYTES, (long) length * Double.BYTES));
+    }
+
+    void store(long index, float[] array, int arrayOffset, int length) {
+        segment.asSlice(index * Float.BYTES, (long) length * Float.BYTES)
+                .copyFrom(MemorySegment.ofArray(array).asSlice((long) arrayOffset * Float.BYTES, (long) length * Float.BYTES));
+    }
+}
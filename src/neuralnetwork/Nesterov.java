@@ -0,0 +1,41 @@
+package neuralnetwork;
+
+/* Nesterov accelerated gradient: momentum whose step looks ahead along the velocity, moving each
+parameter by the updated velocity's momentum share plus the latest delta. This corrects the
+velocity a step sooner than Momentum does when the gradient changes direction */
+public class Nesterov implements Optimizer {
+
+    private static final Kernels kernels = Kernels.get();
+    private final double momentum; // Fraction of the velocity carried into the next step
+
+    public Nesterov() {
+        this(0.9);
+    }
+
+    public Nesterov(double momentum) {
+        if (!(momentum >= 0 && momentum < 1))
+            throw new IllegalArgumentException("Momentum must be at least 0 and less than 1");
+        this.momentum = momentum;
+    }
+
+    @Override
+    public int getStateCount() {
+        return 1;
+    }
+
+    @Override
+    public void update(double[] parameters, int parameterOffset, double[] deltas, double[][] state, int offset,
+                       int length, double learningRate, long step) {
+        kernels.momentum(momentum, true, parameters, parameterOffset, deltas, state[0], offset, length);
+    }
+
+    @Override
+    public void update(float[] parameters, int parameterOffset, float[] deltas, float[][] state, int offset,
+                       int length, double learningRate, long step) {
+        kernels.momentum((float) momentum, true, parameters, parameterOffset, deltas, state[0], offset, length);
+    }
+
+    public double getMomentum() {
+        return momentum;
+    }
+}
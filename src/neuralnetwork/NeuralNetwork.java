@@ -0,0 +1,238 @@
+package neuralnetwork;
+
+import jdk.incubator.foreign.ResourceScope;
+
+import java.util.ArrayList;
+
+public class NeuralNetwork {
+
+    private final ArrayList<Layer> network;
+    private final BatchBuffer outputErrorBuffer; // Reused error terms on the output layer
+    /* Inputs and expected outputs of another precision than the network's are converted into
+    these, so that a double-precision data pipeline can feed a single-precision network */
+    private final BatchBuffer inputBuffer;
+    private final BatchBuffer trueOutputBuffer;
+    private TrainingMetrics metrics; // Null unless training is being measured
+
+    public NeuralNetwork(ArrayList<Integer> layerSizes, ArrayList<ActivationFunction> layerActivations, double learningRate) {
+        this(layerSizes, layerActivations, learningRate, Precision.DOUBLE);
+    }
+
+    // Creates a network whose layers store and compute in the given precision
+    public NeuralNetwork(ArrayList<Integer> layerSizes, ArrayList<ActivationFunction> layerActivations,
+                         double learningRate, Precision precision) {
+        if (layerActivations.size() != layerSizes.size() - 1)
+            throw new IllegalArgumentException("Number of activation functions must be 1 less than number of layers");
+        network = new ArrayList<>();
+        /* Create fully connected network in which the size of the output of one
+        layer is the size of the input to the next */
+        for (int layer = 0; layer < layerSizes.size() - 1; layer++) {
+            ActivationFunction activationFunction = layerActivations.get(layer);
+            network.add(
+                    new Layer(layerSizes.get(layer), layerSizes.get(layer + 1), activationFunction, learningRate, precision)
+            );
+        }
+        outputErrorBuffer = new BatchBuffer(layerSizes.get(layerSizes.size() - 1), 1, precision);
+        inputBuffer = new BatchBuffer(layerSizes.get(0), 1, precision);
+        trueOutputBuffer = new BatchBuffer(layerSizes.get(layerSizes.size() - 1), 1, precision);
+    }
+
+    /* Creates a network whose weights, biases and deltas are held off-heap in the given scope, for
+    layers too large to keep comfortably on the heap. Use a shared scope if more than one thread
+    will train or replicate the network, or for large products to be split across Gemm's pool; in a
+    confined scope every product runs on the calling thread */
+    public NeuralNetwork(ArrayList<Integer> layerSizes, ArrayList<ActivationFunction> layerActivations,
+                         double learningRate, Precision precision, ResourceScope scope) {
+        this(nativeLayers(layerSizes, layerActivations, learningRate, precision, scope));
+    }
+
+    private static ArrayList<Layer> nativeLayers(ArrayList<Integer> layerSizes, ArrayList<ActivationFunction> layerActivations,
+                                                 double learningRate, Precision precision, ResourceScope scope) {
+        if (layerActivations.size() != layerSizes.size() - 1)
+            throw new IllegalArgumentException("Number of activation functions must be 1 less than number of layers");
+        ArrayList<Layer> layers = new ArrayList<>();
+        for (int layer = 0; layer < layerSizes.size() - 1; layer++) {
+            layers.add(new Layer(layerSizes.get(layer), layerSizes.get(layer + 1), layerActivations.get(layer),
+                    learningRate, precision, scope));
+        }
+        return layers;
+    }
+
+    // Creates a network from already constructed layers, such as those of a loaded checkpoint
+    public NeuralNetwork(ArrayList<Layer> layers) {
+        if (layers.isEmpty())
+            throw new IllegalArgumentException("Network must have at least one layer");
+        for (int layer = 1; layer < layers.size(); layer++) {
+            if (layers.get(layer).getWeights().getRows() != layers.get(layer - 1).getWeights().getCols())
+                throw new IllegalArgumentException("Each layer's input size must match the previous layer's output size");
+            if (layers.get(layer).getPrecision() != layers.get(0).getPrecision())
+                throw new IllegalArgumentException("Every layer must have the same precision");
+        }
+        network = new ArrayList<>(layers);
+        Precision precision = layers.get(0).getPrecision();
+        outputErrorBuffer = new BatchBuffer(layers.get(layers.size() - 1).getWeights().getCols(), 1, precision);
+        inputBuffer = new BatchBuffer(layers.get(0).getWeights().getRows(), 1, precision);
+        trueOutputBuffer = new BatchBuffer(layers.get(layers.size() - 1).getWeights().getCols(), 1, precision);
+    }
+
+    // Creates an independent replica of a network with the same topology and parameters
+    public NeuralNetwork(NeuralNetwork source) {
+        this(source, false);
+    }
+
+    /* Creates a replica with its own workspaces and deltas. With 'shareParameters' set it trains
+    the source's weights and biases themselves, lock-free, as in Layer(Layer, boolean) */
+    public NeuralNetwork(NeuralNetwork source, boolean shareParameters) {
+        network = new ArrayList<>();
+        for (Layer layer : source.network)
+            network.add(new Layer(layer, shareParameters));
+        Precision precision = source.getPrecision();
+        outputErrorBuffer = new BatchBuffer(source.getOutput().getCols(), 1, precision);
+        inputBuffer = new BatchBuffer(network.get(0).getWeights().getRows(), 1, precision);
+        trueOutputBuffer = new BatchBuffer(source.getOutput().getCols(), 1, precision);
+    }
+
+    // Performs feed-forward algorithm on a batch of inputs, one sample per row
+    public void feedForward(Matrix input) {
+        if (input.getRows() < 1)
+            throw new IllegalArgumentException("Network input must contain at least one sample");
+        Matrix currentLayer = convert(input, inputBuffer);
+        // Iteratively feed forward by one layer and then pass that output to the next layer
+        for (Layer layer : network) {
+            layer.feedForward(currentLayer);
+            currentLayer = layer.getOutputNodes();
+        }
+    }
+
+    /* Performs feed-forward on a batch of sparse inputs, such as one-hot features. The first layer
+    reads only the weights of the non-zero inputs, and backpropagation updates only those */
+    public void feedForward(SparseMatrix input) {
+        if (input.getRows() < 1)
+            throw new IllegalArgumentException("Network input must contain at least one sample");
+        network.get(0).feedForward(input);
+        Matrix currentLayer = network.get(0).getOutputNodes();
+        for (int index = 1; index < network.size(); index++) {
+            network.get(index).feedForward(currentLayer);
+            currentLayer = network.get(index).getOutputNodes();
+        }
+    }
+
+    // Performs backpropagation algorithm on the expected outputs of the batch last fed forward
+    public void backpropagate(Matrix trueOutput) {
+        backpropagate(trueOutput, trueOutput.getRows());
+    }
+
+    /* Performs backpropagation with deltas averaged over 'totalBatchSize' samples, for when this
+    network holds one shard of a batch split across replicas */
+    public void backpropagate(Matrix trueOutput, int totalBatchSize) {
+        Matrix predictedOutput = this.getOutput();
+        if (trueOutput.getRows() != predictedOutput.getRows() || trueOutput.getCols() != predictedOutput.getCols())
+            throw new IllegalArgumentException("Expected output must match the shape of the network output");
+        // Error term for output layer is difference between true and predicted output
+        Matrix error = outputErrorBuffer.rows(trueOutput.getRows());
+        convert(trueOutput, trueOutputBuffer).subtractInto(predictedOutput, error);
+        if (metrics != null)
+            metrics.addBatch(error);
+        // Start from last layer and propagate backwards through the network
+        for (int currentLayer = network.size() - 1; currentLayer >= 0; currentLayer--) {
+            // 'error' is the error term on each node in the current layer
+            network.get(currentLayer).backpropagate(error, totalBatchSize);
+            error = network.get(currentLayer).getNewErrorTerms();
+        }
+    }
+
+    // Returns 'values' itself if it has the network's precision, otherwise a copy of it in 'buffer'
+    private Matrix convert(Matrix values, BatchBuffer buffer) {
+        if (values.getPrecision() == buffer.getPrecision())
+            return values;
+        Matrix converted = buffer.rows(values.getRows());
+        values.copyInto(converted); // Throws if the number of columns is wrong
+        return converted;
+    }
+
+    // Update weights for the network by modifying weights by calculated deltas
+    public void updateWeights() {
+        for (Layer layer : network) {
+            layer.updateWeights();
+        }
+        if (metrics != null)
+            metrics.endStep();
+    }
+
+    /* Starts measuring training with the given metrics, which can only serve this network; null
+    stops it. Replicas made from this network, such as ParallelTrainer's, are not measured */
+    public void setMetrics(TrainingMetrics metrics) {
+        if (metrics != null) {
+            metrics.attach(this);
+        } else {
+            for (Layer layer : network)
+                layer.setMetrics(null);
+        }
+        this.metrics = metrics;
+    }
+
+    public TrainingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /* Sets the optimizer every layer applies its deltas with, allocating each layer's state for it.
+    Replicas made afterwards use the same optimizer with their own state */
+    public void setOptimizer(Optimizer optimizer) {
+        for (Layer layer : network)
+            layer.setOptimizer(optimizer);
+    }
+
+    // Adds another replica's pending deltas to this network's, layer by layer, clearing the other's
+    public void mergeDeltasFrom(NeuralNetwork other) {
+        for (int layer = 0; layer < network.size(); layer++)
+            network.get(layer).mergeDeltasFrom(other.network.get(layer));
+    }
+
+    // Overwrites this network's weights and biases with those of a replica
+    public void copyParametersFrom(NeuralNetwork other) {
+        for (int layer = 0; layer < network.size(); layer++)
+            network.get(layer).copyParametersFrom(other.network.get(layer));
+    }
+
+    // Feeds a set of samples forward and returns the mean of the squared errors over every output
+    public double meanSquareError(Matrix input, Matrix trueOutput) {
+        feedForward(input);
+        Matrix predictedOutput = getOutput();
+        if (trueOutput.getRows() != predictedOutput.getRows() || trueOutput.getCols() != predictedOutput.getCols())
+            throw new IllegalArgumentException("Expected output must match the shape of the network output");
+        double error = 0.0; // Sum total square error
+        for (int row = 0; row < trueOutput.getRows(); row++) {
+            for (int col = 0; col < trueOutput.getCols(); col++) {
+                double difference = predictedOutput.getElement(row, col) - trueOutput.getElement(row, col);
+                error += difference * difference;
+            }
+        }
+        return error / (trueOutput.getRows() * trueOutput.getCols());
+    }
+
+    // Number of fully connected layers, one fewer than the number of layers of nodes
+    public int getLayerCount() {
+        return network.size();
+    }
+
+    // Precision shared by every layer
+    public Precision getPrecision() {
+        return network.get(0).getPrecision();
+    }
+
+    // Bytes taken by every weight and bias in the network's precision
+    public long getParameterBytes() {
+        long values = 0;
+        for (Layer layer : network)
+            values += (long) (layer.getWeights().getRows() + 1) * layer.getWeights().getCols();
+        return values * getPrecision().getBytes();
+    }
+
+    public Layer getLayer(int index) {
+        return network.get(index);
+    }
+
+    public Matrix getOutput() {
+        return network.get(network.size() - 1).getOutputNodes();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package neuralnetwork;
+
+/* Turns the deltas a layer accumulates during backpropagation into changes to its parameters, as
+part of Strategy pattern. A delta is the step plain gradient descent would take: the learning rate
+times the negative gradient averaged over the batch. Optimizers hold only their hyperparameters,
+so one instance can serve every layer; the values they keep per parameter, such as a velocity,
+live in state matrices that each layer allocates once when given the optimizer */
+public interface Optimizer {
+
+    // Number of values of state kept for each parameter
+    int getStateCount();
+
+    /* Updates 'length' parameters starting at 'parameterOffset' in one pass. Each parameter's delta
+    and state values are at the same position starting at 'offset' in 'deltas' and in the first
+    getStateCount() arrays of 'state'. The change is added to the parameter, which must not
+    otherwise be read, the state is advanced and the delta set to zero. 'step' counts the updates
+    made with this state, starting at 1 */
+    void update(double[] parameters, int parameterOffset, double[] deltas, double[][] state, int offset, int length,
+                double learningRate, long step);
+
+    // Single-precision version of update, for layers that store and compute in floats
+    void update(float[] parameters, int parameterOffset, float[] deltas, float[][] state, int offset, int length,
+                double learningRate, long step);
+}
@@ -0,0 +1,141 @@
+package neuralnetwork;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/* Synchronous data-parallel training. The network is replicated once per worker and each epoch's
+samples are split into one contiguous shard per worker. At every step each worker feeds forward
+and backpropagates the next batch of its own shard, the replicas' deltas are summed pairwise up a
+binary tree, and the network applies them in a single update. The result matches serial training
+in which each step's batch is the workers' batches in worker order, up to floating-point
+summation order */
+public class ParallelTrainer implements AutoCloseable {
+
+    private final NeuralNetwork network; // Network being trained, also the replica of worker 0
+    private final NeuralNetwork[] replicas; // One per worker, replicas[0] == network
+    private final ArrayList<ArrayList<Matrix>> inputBatches; // Per worker, views of its shard's batches
+    private final ArrayList<ArrayList<Matrix>> outputBatches; // Per worker, the matching expected outputs
+    private final int[] stepSizes; // Total samples across all workers at each step
+    private final ForkJoinPool pool;
+    private final boolean ownsPool; // Whether close() should shut the pool down
+
+    // Trains on a dedicated pool with one thread per worker
+    public ParallelTrainer(NeuralNetwork network, Matrix inputs, Matrix outputs, int workers, int batchSize) {
+        this(network, inputs, outputs, workers, batchSize, null, true);
+    }
+
+    // Trains on the given pool, which is left running by close()
+    public ParallelTrainer(NeuralNetwork network, Matrix inputs, Matrix outputs, int workers, int batchSize,
+                           ForkJoinPool pool) {
+        this(network, inputs, outputs, workers, batchSize, pool, false);
+    }
+
+    // With 'ownsPool' set, creates the pool itself once the arguments are known to be valid
+    private ParallelTrainer(NeuralNetwork network, Matrix inputs, Matrix outputs, int workers, int batchSize,
+                            ForkJoinPool pool, boolean ownsPool) {
+        if (workers < 1 || batchSize < 1)
+            throw new IllegalArgumentException("Need at least one worker and one sample per batch");
+        if (inputs.getRows() != outputs.getRows())
+            throw new IllegalArgumentException("Inputs and outputs must have the same number of samples");
+        if (inputs.getRows() < workers)
+            throw new IllegalArgumentException("Every worker needs at least one sample");
+        this.network = network;
+        this.pool = ownsPool ? new ForkJoinPool(workers) : pool;
+        this.ownsPool = ownsPool;
+
+        replicas = new NeuralNetwork[workers];
+        replicas[0] = network;
+        for (int worker = 1; worker < workers; worker++)
+            replicas[worker] = new NeuralNetwork(network);
+
+        // Shards differ in size by at most one sample; batches are views so nothing is copied
+        inputBatches = new ArrayList<>();
+        outputBatches = new ArrayList<>();
+        int samples = inputs.getRows();
+        int steps = 0;
+        for (int worker = 0; worker < workers; worker++) {
+            int shardStart = (int) ((long) samples * worker / workers);
+            int shardEnd = (int) ((long) samples * (worker + 1) / workers);
+            ArrayList<Matrix> workerInputs = new ArrayList<>();
+            ArrayList<Matrix> workerOutputs = new ArrayList<>();
+            for (int start = shardStart; start < shardEnd; start += batchSize) {
+                int rows = Math.min(batchSize, shardEnd - start);
+                workerInputs.add(inputs.view(start, 0, rows, inputs.getCols()));
+                workerOutputs.add(outputs.view(start, 0, rows, outputs.getCols()));
+            }
+            inputBatches.add(workerInputs);
+            outputBatches.add(workerOutputs);
+            steps = Math.max(steps, workerInputs.size());
+        }
+        // Shorter shards run out of batches first and sit out the last step
+        stepSizes = new int[steps];
+        for (ArrayList<Matrix> workerInputs : inputBatches)
+            for (int step = 0; step < workerInputs.size(); step++)
+                stepSizes[step] += workerInputs.get(step).getRows();
+    }
+
+    // Runs one pass over every shard
+    public void trainEpoch() {
+        for (int step = 0; step < stepSizes.length; step++) {
+            pool.invoke(new Reduction(step, 0, replicas.length));
+            network.updateWeights();
+        }
+    }
+
+    // Runs the given number of epochs
+    public void train(int epochs) {
+        for (int epoch = 0; epoch < epochs; epoch++)
+            trainEpoch();
+    }
+
+    // Getter for the number of workers
+    public int getWorkers() {
+        return replicas.length;
+    }
+
+    // Shuts down the pool if this trainer created it
+    @Override
+    public void close() {
+        if (ownsPool)
+            pool.shutdown();
+    }
+
+    /* Computes one step for workers [first, last) and leaves the sum of their deltas in the
+    replica of 'first'. Halves are computed in parallel, then the right half's sum is merged
+    into the left's, giving a tree reduction of depth log2(workers) */
+    @SuppressWarnings("serial")
+    private final class Reduction extends RecursiveAction {
+        private final int step;
+        private final int first, last;
+
+        Reduction(int step, int first, int last) {
+            this.step = step;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                runWorker(first);
+                return;
+            }
+            int middle = (first + last) >>> 1;
+            invokeAll(new Reduction(step, first, middle), new Reduction(step, middle, last));
+            replicas[first].mergeDeltasFrom(replicas[middle]);
+        }
+
+        private void runWorker(int worker) {
+            NeuralNetwork replica = replicas[worker];
+            // Picks up the weights applied at the end of the previous step
+            if (worker != 0)
+                replica.copyParametersFrom(network);
+            ArrayList<Matrix> workerInputs = inputBatches.get(worker);
+            if (step >= workerInputs.size())
+                return;
+            replica.feedForward(workerInputs.get(step));
+            replica.backpropagate(outputBatches.get(worker).get(step), stepSizes[step]);
+        }
+    }
+}
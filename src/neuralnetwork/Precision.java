@@ -0,0 +1,17 @@
+package neuralnetwork;
+
+// Width of the values a matrix stores and computes with. Every matrix in a layer or network shares one
+public enum Precision {
+    DOUBLE(Double.BYTES), // 64-bit values, the default
+    FLOAT(Float.BYTES); // 32-bit values: half the memory and bandwidth, about 7 significant digits
+
+    private final int bytes; // Size of one value
+
+    Precision(int bytes) {
+        this.bytes = bytes;
+    }
+
+    public int getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,165 @@
+package neuralnetwork;
+
+/* Prediction-only copy of a trained network with its weights quantized to 8-bit integers, for
+serving on CPUs where the model's size and memory bandwidth matter more than the last digits of
+its output. Each column of a layer's weights (the weights into one output node) is scaled so its
+largest magnitude maps to 127, and each layer's input is scaled by a fixed factor calibrated from
+sample inputs. A layer then multiplies its quantized input by its quantized weights with 32-bit
+integer sums, scales the sums back to real values, adds the bias and applies the activation
+function in single precision. Like InferenceModel, instances are immutable and any number of
+threads can predict with one model at once */
+public final class QuantizedModel {
+
+    private static final Kernels kernels = Kernels.get();
+    private static final int LEVELS = 127; // Largest quantized magnitude; -128 is unused to keep the range symmetric
+
+    private final int[] sizes; // Number of nodes in each layer of nodes, input first
+    private final byte[][] weights; // Per layer, one run of quantized weights into each output node
+    private final float[][] weightScales; // Per layer, the real value of one quantized step in each column
+    private final float[] inputScales; // Per layer, the real value of one quantized step of its input
+    private final Matrix[] biases; // Per layer, a single row with one value per output node
+    private final ActivationFunction[] activations; // Per layer, stateless so safe to share
+
+    /* Quantizes the network's current weights. The calibration inputs, one sample per row, are
+    fed through the original network to find the range of each layer's input; they should be
+    representative of what the model will be asked to predict, and values beyond the range seen
+    are clamped to it */
+    public QuantizedModel(NeuralNetwork network, Matrix calibrationInputs) {
+        int layers = network.getLayerCount();
+        if (calibrationInputs.getRows() < 1)
+            throw new IllegalArgumentException("Calibration inputs must contain at least one sample");
+        if (calibrationInputs.getCols() != network.getLayer(0).getWeights().getRows())
+            throw new IllegalArgumentException("Calibration inputs must have one column per input node");
+        sizes = new int[layers + 1];
+        weights = new byte[layers][];
+        weightScales = new float[layers][];
+        inputScales = new float[layers];
+        biases = new Matrix[layers];
+        activations = new ActivationFunction[layers];
+        Matrix current = calibrationInputs;
+        for (int index = 0; index < layers; index++) {
+            Layer layer = network.getLayer(index);
+            Matrix layerWeights = layer.getWeights();
+            int inputs = layerWeights.getRows();
+            int outputs = layerWeights.getCols();
+            // Every product is at most 127 * 127, so longer sums could overflow an int
+            if (inputs > Integer.MAX_VALUE / (LEVELS * LEVELS))
+                throw new IllegalArgumentException("Layers with more than " + Integer.MAX_VALUE / (LEVELS * LEVELS)
+                        + " inputs cannot be quantized");
+            sizes[index] = inputs;
+            sizes[index + 1] = outputs;
+            inputScales[index] = scale(current, 0, current.getRows(), 0, current.getCols());
+            weights[index] = new byte[inputs * outputs];
+            weightScales[index] = new float[outputs];
+            for (int col = 0; col < outputs; col++) {
+                float scale = scale(layerWeights, 0, inputs, col, 1);
+                weightScales[index][col] = scale;
+                for (int row = 0; row < inputs; row++)
+                    weights[index][col * inputs + row] = quantize(layerWeights.getElement(row, col), scale);
+            }
+            biases[index] = new Matrix(1, outputs, Precision.FLOAT); // On the heap whatever the layer uses
+            layer.getBiases().copyInto(biases[index]);
+            activations[index] = layer.getActivationFunction();
+            // The calibration pass uses the original weights, so each layer sees its true input range
+            Matrix next = new Matrix(current.getRows(), outputs, layer.getPrecision());
+            Gemm.getDefault().multiply(current.getPrecision() == next.getPrecision() ? current
+                    : current.copy(next.getPrecision()), false, layerWeights, false, 1.0, false, next);
+            next.addToEachRow(layer.getBiases());
+            activations[index].function(next, next);
+            current = next;
+        }
+    }
+
+    // Real value of one quantized step, so that the largest magnitude in the block maps to 127
+    private static float scale(Matrix matrix, int row, int rows, int col, int cols) {
+        double largest = 0;
+        for (int r = row; r < row + rows; r++) {
+            for (int c = col; c < col + cols; c++)
+                largest = Math.max(largest, Math.abs(matrix.getElement(r, c)));
+        }
+        // An all-zero block quantizes to zeros whatever the scale
+        return largest > 0 ? (float) (largest / LEVELS) : 1f;
+    }
+
+    private static byte quantize(double value, float scale) {
+        long level = Math.round(value / scale);
+        return (byte) Math.max(-LEVELS, Math.min(LEVELS, level));
+    }
+
+    /* Feeds a batch of inputs, one sample per row, through the quantized network and returns a
+    new single-precision output matrix */
+    public Matrix predict(Matrix input) {
+        if (input.getRows() < 1)
+            throw new IllegalArgumentException("Network input must contain at least one sample");
+        if (input.getCols() != getInputSize())
+            throw new IllegalArgumentException("Network input must have one column per input node");
+        int samples = input.getRows();
+        // A compact heap copy, so that every row starts at a multiple of the row length
+        Matrix current = new Matrix(samples, input.getCols(), Precision.FLOAT);
+        input.copyInto(current);
+        byte[] quantized = new byte[samples * maxLayerInputs()];
+        for (int layer = 0; layer < weights.length; layer++) {
+            int inputs = sizes[layer];
+            int outputs = sizes[layer + 1];
+            float[] values = current.getFloatData();
+            float inputScale = inputScales[layer];
+            for (int i = 0; i < samples * inputs; i++)
+                quantized[i] = quantize(values[i], inputScale);
+            Matrix next = new Matrix(samples, outputs, Precision.FLOAT);
+            float[] output = next.getFloatData();
+            float[] bias = biases[layer].getFloatData();
+            byte[] layerWeights = weights[layer];
+            float[] layerScales = weightScales[layer];
+            for (int sample = 0; sample < samples; sample++) {
+                for (int col = 0; col < outputs; col++) {
+                    int sum = kernels.dot(quantized, sample * inputs, layerWeights, col * inputs, inputs);
+                    output[sample * outputs + col] = sum * (inputScale * layerScales[col]) + bias[col];
+                }
+            }
+            activations[layer].function(next, next); // In place, as 'next' is private to this call
+            current = next;
+        }
+        return current;
+    }
+
+    // Feeds a set of samples forward and returns the mean of the squared errors over every output
+    public double meanSquareError(Matrix input, Matrix trueOutput) {
+        Matrix predictedOutput = predict(input);
+        if (trueOutput.getRows() != predictedOutput.getRows() || trueOutput.getCols() != predictedOutput.getCols())
+            throw new IllegalArgumentException("Expected output must match the shape of the network output");
+        double error = 0.0; // Sum total square error
+        for (int row = 0; row < trueOutput.getRows(); row++) {
+            for (int col = 0; col < trueOutput.getCols(); col++) {
+                double difference = predictedOutput.getElement(row, col) - trueOutput.getElement(row, col);
+                error += difference * difference;
+            }
+        }
+        return error / (trueOutput.getRows() * trueOutput.getCols());
+    }
+
+    private int maxLayerInputs() {
+        int largest = 0;
+        for (int layer = 0; layer < weights.length; layer++)
+            largest = Math.max(largest, sizes[layer]);
+        return largest;
+    }
+
+    // Number of values each sample must have
+    public int getInputSize() {
+        return sizes[0];
+    }
+
+    // Number of values predicted for each sample
+    public int getOutputSize() {
+        return sizes[sizes.length - 1];
+    }
+
+    // Bytes taken by the quantized weights and the float scales and biases needed to use them
+    public long getParameterBytes() {
+        long bytes = 0;
+        for (int layer = 0; layer < weights.length; layer++)
+            bytes += weights[layer].length + Float.BYTES * (2L * sizes[layer + 1] + 1);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,63 @@
+package neuralnetwork;
+
+import java.util.Arrays;
+
+/* RMSProp: each parameter keeps a decaying mean of its squared deltas and moves by the learning
+rate times its delta divided by the root of that mean, so every parameter takes steps of about the
+learning rate however large its gradient is. As deltas already include the learning rate, the
+usual formula is applied with epsilon scaled to match */
+public class RMSProp implements Optimizer {
+
+    private static final Kernels kernels = Kernels.get();
+    private final double decay; // Weight of the previous mean square in the next
+    private final double epsilon; // Added to the root mean square gradient so it is never zero
+
+    public RMSProp() {
+        this(0.9, 1e-8);
+    }
+
+    public RMSProp(double decay, double epsilon) {
+        if (!(decay >= 0 && decay < 1))
+            throw new IllegalArgumentException("Decay must be at least 0 and less than 1");
+        if (!(epsilon > 0))
+            throw new IllegalArgumentException("Epsilon must be positive");
+        this.decay = decay;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public int getStateCount() {
+        return 1;
+    }
+
+    @Override
+    public void update(double[] parameters, int parameterOffset, double[] deltas, double[][] state, int offset,
+                       int length, double learningRate, long step) {
+        // With no learning rate every delta is zero, and the step below would divide zero by zero
+        if (learningRate == 0) {
+            Arrays.fill(deltas, offset, offset + length, 0);
+            return;
+        }
+        kernels.rmsProp(decay, learningRate, learningRate * epsilon, parameters, parameterOffset, deltas, state[0],
+                offset, length);
+    }
+
+    @Override
+    public void update(float[] parameters, int parameterOffset, float[] deltas, float[][] state, int offset,
+                       int length, double learningRate, long step) {
+        if (learningRate == 0) {
+            Arrays.fill(deltas, offset, offset + length, 0);
+            return;
+        }
+        kernels.rmsProp((float) decay, (float) learningRate, (float) (learningRate * epsilon), parameters,
+                parameterOffset, deltas, state[0], offset, length);
+    }
+
+    public double getDecay() {
+        return decay;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+}
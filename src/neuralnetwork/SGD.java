@@ -0,0 +1,24 @@
+package neuralnetwork;
+
+// Plain stochastic gradient descent: every parameter moves by exactly its delta
+public class SGD implements Optimizer {
+
+    private static final Kernels kernels = Kernels.get();
+
+    @Override
+    public int getStateCount() {
+        return 0;
+    }
+
+    @Override
+    public void update(double[] parameters, int parameterOffset, double[] deltas, double[][] state, int offset,
+                       int length, double learningRate, long step) {
+        kernels.applyDeltas(parameters, parameterOffset, deltas, offset, length);
+    }
+
+    @Override
+    public void update(float[] parameters, int parameterOffset, float[] deltas, float[][] state, int offset,
+                       int length, double learningRate, long step) {
+        kernels.applyDeltas(parameters, parameterOffset, deltas, offset, length);
+    }
+}
@@ -0,0 +1,134 @@
+package neuralnetwork;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/* The choices for each setting of a hyperparameter search, from which candidates are drawn either
+as the full grid of every combination or as a random sample of it. A candidate's hidden layers all
+use the same activation function; the input and output sizes and the output layer's activation are
+fixed by the problem */
+public final class SearchSpace {
+
+    private final int inputs;
+    private final int outputs;
+    private final ActivationFunction outputActivation;
+    private final List<List<Integer>> hiddenLayers; // Each a list of hidden layer sizes, possibly empty
+    private final List<ActivationFunction> hiddenActivations;
+    private final List<Double> learningRates;
+    private final List<Integer> batchSizes;
+    private final List<Optimizer> optimizers;
+    private final int gridSize; // Number of positions in the grid, counting duplicates
+    private final int size; // Number of different combinations
+
+    public SearchSpace(int inputs, int outputs, ActivationFunction outputActivation, List<List<Integer>> hiddenLayers,
+                       List<ActivationFunction> hiddenActivations, List<Double> learningRates, List<Integer> batchSizes,
+                       List<Optimizer> optimizers) {
+        if (inputs < 1 || outputs < 1)
+            throw new IllegalArgumentException("Network must have at least one input and one output");
+        if (hiddenLayers.isEmpty() || hiddenActivations.isEmpty() || learningRates.isEmpty() || batchSizes.isEmpty()
+                || optimizers.isEmpty())
+            throw new IllegalArgumentException("Every setting must have at least one choice");
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.outputActivation = outputActivation;
+        this.hiddenLayers = List.copyOf(hiddenLayers);
+        this.hiddenActivations = List.copyOf(hiddenActivations);
+        this.learningRates = List.copyOf(learningRates);
+        this.batchSizes = List.copyOf(batchSizes);
+        this.optimizers = List.copyOf(optimizers);
+        try {
+            gridSize = Math.multiplyExact(Math.multiplyExact(Math.multiplyExact(Math.multiplyExact(
+                    hiddenLayers.size(), hiddenActivations.size()), learningRates.size()), batchSizes.size()),
+                    optimizers.size());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Search space has too many combinations", e);
+        }
+        // Without hidden layers the hidden activation makes no difference, so only the first is used
+        int duplicates = 0;
+        for (List<Integer> hidden : hiddenLayers) {
+            if (hidden.isEmpty())
+                duplicates += gridSize / hiddenLayers.size() / hiddenActivations.size() * (hiddenActivations.size() - 1);
+        }
+        size = gridSize - duplicates;
+        // Checked here rather than when a candidate is built part way through a search
+        for (List<Integer> hidden : hiddenLayers) {
+            for (int layerSize : hidden) {
+                if (layerSize < 1)
+                    throw new IllegalArgumentException("Every layer must have at least one node");
+            }
+        }
+        for (double learningRate : learningRates) {
+            if (!(learningRate > 0))
+                throw new IllegalArgumentException("Learning rates must be positive");
+        }
+        for (int batchSize : batchSizes) {
+            if (batchSize < 1)
+                throw new IllegalArgumentException("Batch sizes must be at least 1");
+        }
+    }
+
+    // Number of different combinations
+    public int size() {
+        return size;
+    }
+
+    // Every combination, varying the optimizer fastest and the hidden layers slowest
+    public List<Hyperparameters> grid() {
+        List<Hyperparameters> candidates = new ArrayList<>(size);
+        for (int index = 0; index < gridSize; index++) {
+            if (!isDuplicate(index))
+                candidates.add(get(index));
+        }
+        return candidates;
+    }
+
+    /* 'count' different combinations drawn uniformly at random, or the whole grid if it has no more
+    than that. The same seed gives the same candidates in the same order */
+    public List<Hyperparameters> random(int count, long seed) {
+        if (count < 1)
+            throw new IllegalArgumentException("Must draw at least one candidate");
+        if (count >= size)
+            return grid();
+        Random random = new Random(seed);
+        Set<Integer> drawn = new HashSet<>();
+        List<Hyperparameters> candidates = new ArrayList<>(count);
+        while (candidates.size() < count) {
+            int index = random.nextInt(gridSize);
+            if (!isDuplicate(index) && drawn.add(index))
+                candidates.add(get(index));
+        }
+        return candidates;
+    }
+
+    // Whether a position of the grid repeats another, for lack of hidden layers to apply its activation to
+    private boolean isDuplicate(int index) {
+        int rest = index / (optimizers.size() * batchSizes.size() * learningRates.size());
+        return rest % hiddenActivations.size() != 0 && hiddenLayers.get(rest / hiddenActivations.size()).isEmpty();
+    }
+
+    // The combination at a position of the grid, read as a mixed-radix number with one digit per setting
+    private Hyperparameters get(int index) {
+        Optimizer optimizer = optimizers.get(index % optimizers.size());
+        index /= optimizers.size();
+        int batchSize = batchSizes.get(index % batchSizes.size());
+        index /= batchSizes.size();
+        double learningRate = learningRates.get(index % learningRates.size());
+        index /= learningRates.size();
+        ActivationFunction hiddenActivation = hiddenActivations.get(index % hiddenActivations.size());
+        index /= hiddenActivations.size();
+        List<Integer> hidden = hiddenLayers.get(index);
+        List<Integer> sizes = new ArrayList<>();
+        List<ActivationFunction> activations = new ArrayList<>();
+        sizes.add(inputs);
+        for (int layerSize : hidden) {
+            sizes.add(layerSize);
+            activations.add(hiddenActivation);
+        }
+        sizes.add(outputs);
+        activations.add(outputActivation);
+        return new Hyperparameters(sizes, activations, learningRate, batchSize, optimizer);
+    }
+}
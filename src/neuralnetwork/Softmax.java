@@ -0,0 +1,98 @@
+package neuralnetwork;
+
+public class Softmax implements ActivationFunction {
+
+    private static final Kernels kernels = Kernels.get();
+    private final boolean approximate; // Use FastMath.exp (relative error below 4e-11)
+
+    public Softmax() {
+        this(false);
+    }
+
+    public Softmax(boolean approximate) {
+        this.approximate = approximate;
+    }
+
+    /* Applies softmax to each row of a matrix of output values. e^x overflows above x = 709 in double
+    precision and 88 in single, so each row's largest value is subtracted before exponentiating,
+    which leaves the result unchanged */
+    @Override
+    public void function(Matrix input, Matrix output) {
+        input.checkSameShape(output);
+        input.checkSamePrecision(output);
+        if (input.getPrecision() == Precision.FLOAT) {
+            functionFloat(input, output);
+            return;
+        }
+        // Number of distinct classes in output
+        int classCount = input.getCols();
+        double[] in = input.getData();
+        double[] out = output.getData();
+        // Each row is a separate sample so is normalised on its own
+        for (int row = 0; row < input.getRows(); row++) {
+            int inRow = input.getOffset() + row * input.getStride();
+            int outRow = output.getOffset() + row * output.getStride();
+            double max = kernels.max(in, inRow, classCount);
+            // Exponentials are written to the output first so each is only computed once
+            double exponentialSum; // Sum of exponential of each value
+            if (approximate) {
+                exponentialSum = 0;
+                for (int element = 0; element < classCount; element++) {
+                    double exponential = FastMath.exp(in[inRow + element] - max);
+                    out[outRow + element] = exponential;
+                    exponentialSum += exponential;
+                }
+            } else {
+                exponentialSum = kernels.exp(in, inRow, max, out, outRow, classCount);
+            }
+            kernels.divide(out, outRow, exponentialSum, out, outRow, classCount);
+        }
+    }
+
+    @Override
+    public double derivative(double x) { return x * (1 - x); }
+
+    // Only the diagonal of the softmax Jacobian is used, as for the element-wise functions
+    @Override
+    public void derivative(Matrix output, Matrix result) {
+        output.checkSameShape(result);
+        output.checkSamePrecision(result);
+        for (int row = 0; row < output.getRows(); row++) {
+            int inRow = output.getOffset() + row * output.getStride();
+            int outRow = result.getOffset() + row * result.getStride();
+            if (output.getPrecision() == Precision.FLOAT)
+                kernels.logisticDerivative(output.getFloatData(), inRow, result.getFloatData(), outRow, output.getCols());
+            else
+                kernels.logisticDerivative(output.getData(), inRow, result.getData(), outRow, output.getCols());
+        }
+    }
+
+    // Single-precision version of function
+    private void functionFloat(Matrix input, Matrix output) {
+        int classCount = input.getCols();
+        float[] in = input.getFloatData();
+        float[] out = output.getFloatData();
+        for (int row = 0; row < input.getRows(); row++) {
+            int inRow = input.getOffset() + row * input.getStride();
+            int outRow = output.getOffset() + row * output.getStride();
+            float max = kernels.max(in, inRow, classCount);
+            float exponentialSum;
+            if (approximate) {
+                exponentialSum = 0;
+                for (int element = 0; element < classCount; element++) {
+                    float exponential = (float) FastMath.exp(in[inRow + element] - max);
+                    out[outRow + element] = exponential;
+                    exponentialSum += exponential;
+                }
+            } else {
+                exponentialSum = kernels.exp(in, inRow, max, out, outRow, classCount);
+            }
+            kernels.divide(out, outRow, exponentialSum, out, outRow, classCount);
+        }
+    }
+
+    // Getter for whether the fast approximation is used
+    public boolean isApproximate() {
+        return approximate;
+    }
+}
@@ -0,0 +1,141 @@
+package neuralnetwork;
+
+import java.util.Arrays;
+
+/* Matrix stored in compressed sparse row (CSR) form, for inputs such as one-hot or bag-of-words
+features where most values are zero. Only the non-zero values are kept, row by row, each with
+its column; row r's values are those at positions rowStarts[r] to rowStarts[r + 1] - 1. Products
+with dense matrices visit only the non-zero values, so their cost grows with the number of
+non-zeros rather than with the number of columns. Values are held in double precision and
+rounded when combined with single-precision matrices. Instances are immutable */
+public final class SparseMatrix {
+
+    private final int rows; // Number of rows in the matrix
+    private final int cols; // Number of columns in the matrix
+    private final int[] rowStarts; // Position of each row's first value, plus a final entry for the total
+    private final int[] columnIndices; // Column of each stored value, ascending within a row
+    private final double[] values; // Non-zero values in row-major order
+
+    /* Wraps CSR arrays without copying them. 'rowStarts' has rows + 1 ascending entries starting at
+    0, and the columns within each row must be strictly ascending */
+    public SparseMatrix(int rows, int cols, int[] rowStarts, int[] columnIndices, double[] values) {
+        if (rows < 0 || cols < 0)
+            throw new IllegalArgumentException("Matrix dimensions must not be negative");
+        if (rowStarts.length != rows + 1 || rowStarts[0] != 0)
+            throw new IllegalArgumentException("Row starts must have one entry per row plus one, starting at 0");
+        if (columnIndices.length != values.length || rowStarts[rows] != values.length)
+            throw new IllegalArgumentException("Every stored value must have exactly one column index");
+        for (int row = 0; row < rows; row++) {
+            if (rowStarts[row + 1] < rowStarts[row])
+                throw new IllegalArgumentException("Row starts must not decrease");
+            for (int index = rowStarts[row]; index < rowStarts[row + 1]; index++) {
+                int col = columnIndices[index];
+                if (col < 0 || col >= cols || (index > rowStarts[row] && col <= columnIndices[index - 1]))
+                    throw new IllegalArgumentException("Column indices must be in range and ascending within each row");
+            }
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.rowStarts = rowStarts;
+        this.columnIndices = columnIndices;
+        this.values = values;
+    }
+
+    // Creates a sparse copy of a dense matrix, keeping only its non-zero values
+    public static SparseMatrix fromDense(Matrix dense) {
+        int rows = dense.getRows();
+        int cols = dense.getCols();
+        int[] rowStarts = new int[rows + 1];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (dense.getElement(row, col) != 0)
+                    count++;
+            }
+            rowStarts[row + 1] = count;
+        }
+        int[] columnIndices = new int[count];
+        double[] values = new double[count];
+        int index = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                double value = dense.getElement(row, col);
+                if (value != 0) {
+                    columnIndices[index] = col;
+                    values[index++] = value;
+                }
+            }
+        }
+        return new SparseMatrix(rows, cols, rowStarts, columnIndices, values);
+    }
+
+    // Getter for the number of rows in the matrix
+    public int getRows() {
+        return rows;
+    }
+
+    // Getter for the number of columns in the matrix
+    public int getCols() {
+        return cols;
+    }
+
+    // Number of values stored, i.e. the values that may be non-zero
+    public int getNonZeroCount() {
+        return values.length;
+    }
+
+    public double getElement(int row, int col) {
+        if (row < 0 || row >= rows)
+            throw new IndexOutOfBoundsException("Row out of range");
+        if (col < 0 || col >= cols)
+            throw new IndexOutOfBoundsException("Column out of range");
+        int index = Arrays.binarySearch(columnIndices, rowStarts[row], rowStarts[row + 1], col);
+        return index >= 0 ? values[index] : 0.0;
+    }
+
+    // Returns a new dense matrix of the given precision holding the same values
+    public Matrix toDense(Precision precision) {
+        Matrix dense = new Matrix(rows, cols, precision);
+        for (int row = 0; row < rows; row++) {
+            for (int index = rowStarts[row]; index < rowStarts[row + 1]; index++)
+                dense.setElement(values[index], row, columnIndices[index]);
+        }
+        return dense;
+    }
+
+    /* Writes the product of this matrix and a dense one into 'result', which must already have the
+    right shape and the dense matrix's precision. Each stored value adds a scaled row of 'other' to
+    a row of the result */
+    public void multiplyInto(Matrix other, Matrix result) {
+        if (other.getRows() != cols)
+            throw new IllegalArgumentException("Dimensions do not match for matrix multiplication");
+        if (result.getRows() != rows || result.getCols() != other.getCols())
+            throw new IllegalArgumentException("Result must have one row per row and one column per column of the product");
+        other.checkSamePrecision(result);
+        result.fill(0.0);
+        for (int row = 0; row < rows; row++) {
+            for (int index = rowStarts[row]; index < rowStarts[row + 1]; index++)
+                other.addScaledRowInto(values[index], columnIndices[index], result, row);
+        }
+    }
+
+    /* Adds 'scale' times the product of this matrix's transpose and a dense matrix to 'result'.
+    Only the rows of 'result' whose column of this matrix holds a stored value are changed, which
+    is how a layer fed sparse input updates just the weights of its active inputs */
+    public void addTransposedProductInto(double scale, Matrix other, Matrix result) {
+        if (other.getRows() != rows)
+            throw new IllegalArgumentException("Dimensions do not match for matrix multiplication");
+        if (result.getRows() != cols || result.getCols() != other.getCols())
+            throw new IllegalArgumentException("Result must have one row per column of this matrix");
+        other.checkSamePrecision(result);
+        for (int row = 0; row < rows; row++) {
+            for (int index = rowStarts[row]; index < rowStarts[row + 1]; index++)
+                other.addScaledRowInto(scale * values[index], row, result, columnIndices[index]);
+        }
+    }
+
+    // Column of every stored value in row-major order; shared, not copied, so must not be modified
+    int[] getColumnIndices() {
+        return columnIndices;
+    }
+}
@@ -0,0 +1,79 @@
+package neuralnetwork;
+
+public class Tanh implements ActivationFunction{
+
+    private static final Kernels kernels = Kernels.get();
+    private final boolean approximate; // Use FastMath.tanh (absolute error below 2e-11)
+
+    public Tanh() {
+        this(false);
+    }
+
+    public Tanh(boolean approximate) {
+        this.approximate = approximate;
+    }
+
+    // Applies tanh (hyperbolic tangent) function to every element in input
+    @Override
+    public void function(Matrix input, Matrix output) {
+        input.checkSameShape(output);
+        input.checkSamePrecision(output);
+        if (input.getPrecision() == Precision.FLOAT) {
+            functionFloat(input, output);
+            return;
+        }
+        double[] in = input.getData();
+        double[] out = output.getData();
+        for (int row = 0; row < input.getRows(); row++) {
+            int inRow = input.getOffset() + row * input.getStride();
+            int outRow = output.getOffset() + row * output.getStride();
+            if (approximate) {
+                for (int element = 0; element < input.getCols(); element++)
+                    out[outRow + element] = FastMath.tanh(in[inRow + element]);
+            } else {
+                kernels.tanh(in, inRow, out, outRow, input.getCols());
+            }
+        }
+    }
+
+    // Given y = tanh(z), the derivative sech^2(z) is 1 - y^2
+    @Override
+    public double derivative(double x) {
+        return 1 - x * x;
+    }
+
+    @Override
+    public void derivative(Matrix output, Matrix result) {
+        output.checkSameShape(result);
+        output.checkSamePrecision(result);
+        for (int row = 0; row < output.getRows(); row++) {
+            int inRow = output.getOffset() + row * output.getStride();
+            int outRow = result.getOffset() + row * result.getStride();
+            if (output.getPrecision() == Precision.FLOAT)
+                kernels.tanhDerivative(output.getFloatData(), inRow, result.getFloatData(), outRow, output.getCols());
+            else
+                kernels.tanhDerivative(output.getData(), inRow, result.getData(), outRow, output.getCols());
+        }
+    }
+
+    // Single-precision version of function
+    private void functionFloat(Matrix input, Matrix output) {
+        float[] in = input.getFloatData();
+        float[] out = output.getFloatData();
+        for (int row = 0; row < input.getRows(); row++) {
+            int inRow = input.getOffset() + row * input.getStride();
+            int outRow = output.getOffset() + row * output.getStride();
+            if (approximate) {
+                for (int element = 0; element < input.getCols(); element++)
+                    out[outRow + element] = (float) FastMath.tanh(in[inRow + element]);
+            } else {
+                kernels.tanh(in, inRow, out, outRow, input.getCols());
+            }
+        }
+    }
+
+    // Getter for whether the fast approximation is used
+    public boolean isApproximate() {
+        return approximate;
+    }
+}
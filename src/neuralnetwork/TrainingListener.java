@@ -0,0 +1,15 @@
+package neuralnetwork;
+
+/* Receives the measurements of a TrainingMetrics as training goes. Both methods are called on the
+training thread, so should return quickly; neither has to be implemented */
+public interface TrainingListener {
+
+    /* Called after each weight update. The step object is reused for the next step, so anything
+    kept beyond the call must be copied out of it */
+    default void onStep(TrainingMetrics.Step step) {
+    }
+
+    // Called when the training loop ends an epoch with TrainingMetrics.endEpoch
+    default void onEpoch(TrainingMetrics.Epoch epoch) {
+    }
+}
@@ -0,0 +1,379 @@
+package neuralnetwork;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/* Measures where a network's training time goes: each layer's time feeding forward,
+backpropagating and updating its weights, the samples trained per second, the loss over each
+epoch and, optionally, the bytes allocated per step. Attach it with NeuralNetwork.setMetrics; a
+step then ends with each updateWeights and covers everything the training thread did since the
+previous one, and an epoch ends when the training loop calls endEpoch. Each step and epoch is
+reported to the listeners and as a JDK Flight Recorder event, so production runs can be profiled
+by recording with JFR. Epoch events are recorded by default; step and per-layer events, one per
+update, only when enabled in the recording's settings. A network without metrics pays only a
+null check per layer and phase. Not thread-safe: use it from the thread training the network */
+public final class TrainingMetrics {
+
+    // Null unless allocations are recorded, as reading the counter costs a little on every step
+    private final com.sun.management.ThreadMXBean threads;
+    private TrainingListener[] listeners = new TrainingListener[0];
+    private NeuralNetwork network; // Set once attached
+    private LayerMetrics[] layers; // Counters of each layer of the network, reset after every step
+    private Step step; // Reused for every step so that measuring does not allocate
+    // The current step
+    private long stepStart;
+    private long stepAllocationStart;
+    private int stepSamples;
+    private double stepSquareError; // Summed over every output of every sample backpropagated
+    private long stepOutputs;
+    // The current epoch
+    private int epoch;
+    private long epochStart;
+    private long epochAllocationStart;
+    private long epochSteps;
+    private long epochSamples;
+    private double epochSquareError;
+    private long epochOutputs;
+    private long[] epochFeedForward;
+    private long[] epochBackpropagate;
+    private long[] epochUpdate;
+
+    public TrainingMetrics() {
+        this(false);
+    }
+
+    // With 'recordAllocations' set, also reports the bytes the training thread allocates per step
+    public TrainingMetrics(boolean recordAllocations) {
+        threads = recordAllocations ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+    }
+
+    public void addListener(TrainingListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    public void removeListener(TrainingListener listener) {
+        for (int index = 0; index < listeners.length; index++) {
+            if (listeners[index] == listener) {
+                TrainingListener[] remaining = new TrainingListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, index);
+                System.arraycopy(listeners, index + 1, remaining, index, remaining.length - index);
+                listeners = remaining;
+                return;
+            }
+        }
+    }
+
+    // Called by NeuralNetwork.setMetrics; the first step and epoch start now
+    void attach(NeuralNetwork network) {
+        if (this.network != null && this.network != network)
+            throw new IllegalStateException("Metrics are already attached to another network");
+        if (this.network == null) {
+            int count = network.getLayerCount();
+            layers = new LayerMetrics[count];
+            for (int index = 0; index < count; index++)
+                layers[index] = new LayerMetrics();
+            step = new Step(count);
+            epochFeedForward = new long[count];
+            epochBackpropagate = new long[count];
+            epochUpdate = new long[count];
+            this.network = network;
+            startEpoch();
+        }
+        for (int index = 0; index < layers.length; index++)
+            network.getLayer(index).setMetrics(layers[index]);
+    }
+
+    // Called by NeuralNetwork.backpropagate with the output error, true minus predicted, of a batch
+    void addBatch(Matrix error) {
+        double squareError = 0.0;
+        for (int row = 0; row < error.getRows(); row++) {
+            for (int col = 0; col < error.getCols(); col++) {
+                double difference = error.getElement(row, col);
+                squareError += difference * difference;
+            }
+        }
+        stepSamples += error.getRows();
+        stepSquareError += squareError;
+        stepOutputs += (long) error.getRows() * error.getCols();
+    }
+
+    // Called by NeuralNetwork.updateWeights once every layer is updated
+    void endStep() {
+        long end = System.nanoTime();
+        long allocated = threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+        for (int index = 0; index < layers.length; index++) {
+            LayerMetrics layer = layers[index];
+            step.feedForward[index] = layer.getFeedForwardNanoseconds();
+            step.backpropagate[index] = layer.getBackpropagateNanoseconds();
+            step.update[index] = layer.getUpdateNanoseconds();
+            epochFeedForward[index] += step.feedForward[index];
+            epochBackpropagate[index] += step.backpropagate[index];
+            epochUpdate[index] += step.update[index];
+            layer.reset();
+        }
+        step.samples = stepSamples;
+        step.nanoseconds = end - stepStart;
+        step.allocatedBytes = threads != null ? allocated - stepAllocationStart : -1;
+        step.loss = stepOutputs > 0 ? stepSquareError / stepOutputs : Double.NaN;
+        epochSteps++;
+        epochSamples += stepSamples;
+        epochSquareError += stepSquareError;
+        epochOutputs += stepOutputs;
+        stepSamples = 0;
+        stepSquareError = 0.0;
+        stepOutputs = 0;
+        for (TrainingListener listener : listeners)
+            listener.onStep(step);
+        commitStepEvents(step);
+        // Reporting is left out of the next step, though not out of the epoch
+        stepStart = System.nanoTime();
+        if (threads != null)
+            stepAllocationStart = threads.getCurrentThreadAllocatedBytes();
+    }
+
+    /* Ends the current epoch, reporting it to the listeners and JFR, and starts the next. The
+    epoch's time runs from the end of the previous one, so includes loading data and anything
+    else the training loop did besides stepping */
+    public Epoch endEpoch() {
+        if (network == null)
+            throw new IllegalStateException("Metrics must be attached to a network before ending an epoch");
+        long nanoseconds = System.nanoTime() - epochStart;
+        long allocatedBytes = threads != null ? threads.getCurrentThreadAllocatedBytes() - epochAllocationStart : -1;
+        Epoch ended = new Epoch(epoch, epochSteps, epochSamples, nanoseconds,
+                epochOutputs > 0 ? epochSquareError / epochOutputs : Double.NaN, allocatedBytes,
+                epochFeedForward.clone(), epochBackpropagate.clone(), epochUpdate.clone());
+        for (TrainingListener listener : listeners)
+            listener.onEpoch(ended);
+        EpochEvent event = new EpochEvent();
+        if (event.shouldCommit()) {
+            event.epoch = ended.getEpoch();
+            event.steps = ended.getSteps();
+            event.samples = ended.getSamples();
+            event.wallTime = nanoseconds;
+            event.samplesPerSecond = ended.getSamplesPerSecond();
+            event.loss = ended.getLoss();
+            event.allocated = allocatedBytes;
+            event.commit();
+        }
+        epoch++;
+        startEpoch();
+        return ended;
+    }
+
+    private void startEpoch() {
+        epochSteps = 0;
+        epochSamples = 0;
+        epochSquareError = 0.0;
+        epochOutputs = 0;
+        Arrays.fill(epochFeedForward, 0);
+        Arrays.fill(epochBackpropagate, 0);
+        Arrays.fill(epochUpdate, 0);
+        epochStart = System.nanoTime();
+        stepStart = epochStart;
+        if (threads != null) {
+            epochAllocationStart = threads.getCurrentThreadAllocatedBytes();
+            stepAllocationStart = epochAllocationStart;
+        }
+    }
+
+    private static void commitStepEvents(Step step) {
+        StepEvent event = new StepEvent();
+        if (event.shouldCommit()) {
+            event.samples = step.samples;
+            event.wallTime = step.nanoseconds;
+            event.loss = step.loss;
+            event.allocated = step.allocatedBytes;
+            event.commit();
+        }
+        for (int index = 0; index < step.getLayerCount(); index++) {
+            LayerEvent layerEvent = new LayerEvent();
+            if (!layerEvent.shouldCommit())
+                return;
+            layerEvent.layer = index;
+            layerEvent.feedForward = step.feedForward[index];
+            layerEvent.backpropagate = step.backpropagate[index];
+            layerEvent.update = step.update[index];
+            layerEvent.commit();
+        }
+    }
+
+    // Number of the current epoch, counting from 0
+    public int getEpoch() {
+        return epoch;
+    }
+
+    /* One weight update. Instances are reused and overwritten by the next step, so are only valid
+    during TrainingListener.onStep */
+    public static final class Step {
+
+        private final long[] feedForward; // Per layer, nanoseconds feeding forward during the step
+        private final long[] backpropagate;
+        private final long[] update;
+        private int samples; // Samples backpropagated since the previous update
+        private long nanoseconds; // Wall-clock time since the previous update
+        private long allocatedBytes; // Bytes allocated by the training thread, or -1 if not recorded
+        private double loss; // Mean square error over the step's samples before the update
+
+        private Step(int layers) {
+            feedForward = new long[layers];
+            backpropagate = new long[layers];
+            update = new long[layers];
+        }
+
+        public int getLayerCount() {
+            return feedForward.length;
+        }
+
+        public long getFeedForwardNanoseconds(int layer) {
+            return feedForward[layer];
+        }
+
+        public long getBackpropagateNanoseconds(int layer) {
+            return backpropagate[layer];
+        }
+
+        public long getUpdateNanoseconds(int layer) {
+            return update[layer];
+        }
+
+        public int getSamples() {
+            return samples;
+        }
+
+        public long getNanoseconds() {
+            return nanoseconds;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        // NaN if nothing was backpropagated through this network, as with ParallelTrainer's replicas
+        public double getLoss() {
+            return loss;
+        }
+    }
+
+    /* Totals over one epoch. The loss is the mean square error over every sample backpropagated,
+    each measured before the update it contributed to, so it lags the loss of the final weights */
+    public static final class Epoch extends TrainingReport {
+
+        private final int epoch;
+        private final long steps;
+        private final long allocatedBytes;
+        private final long[] feedForward;
+        private final long[] backpropagate;
+        private final long[] update;
+
+        private Epoch(int epoch, long steps, long samples, long nanoseconds, double loss, long allocatedBytes,
+                      long[] feedForward, long[] backpropagate, long[] update) {
+            super(samples, nanoseconds, loss);
+            this.epoch = epoch;
+            this.steps = steps;
+            this.allocatedBytes = allocatedBytes;
+            this.feedForward = feedForward;
+            this.backpropagate = backpropagate;
+            this.update = update;
+        }
+
+        public int getEpoch() {
+            return epoch;
+        }
+
+        public long getSteps() {
+            return steps;
+        }
+
+        // Bytes allocated by the training thread, or -1 if not recorded
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getFeedForwardNanoseconds(int layer) {
+            return feedForward[layer];
+        }
+
+        public long getBackpropagateNanoseconds(int layer) {
+            return backpropagate[layer];
+        }
+
+        public long getUpdateNanoseconds(int layer) {
+            return update[layer];
+        }
+
+        @Override
+        public String toString() {
+            return "Epoch " + epoch + ": " + super.toString();
+        }
+    }
+
+    @Name("neuralnetwork.TrainingEpoch")
+    @Label("Training Epoch")
+    @Category("Neural Network")
+    @StackTrace(false)
+    static final class EpochEvent extends Event {
+        @Label("Epoch")
+        int epoch;
+        @Label("Steps")
+        long steps;
+        @Label("Samples")
+        long samples;
+        @Label("Wall Time")
+        @Timespan
+        long wallTime;
+        @Label("Samples per Second")
+        double samplesPerSecond;
+        @Label("Loss")
+        double loss;
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+
+    @Name("neuralnetwork.TrainingStep")
+    @Label("Training Step")
+    @Category("Neural Network")
+    @StackTrace(false)
+    @Enabled(false)
+    static final class StepEvent extends Event {
+        @Label("Samples")
+        int samples;
+        @Label("Wall Time")
+        @Timespan
+        long wallTime;
+        @Label("Loss")
+        double loss;
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+
+    @Name("neuralnetwork.LayerStep")
+    @Label("Layer Step")
+    @Category("Neural Network")
+    @StackTrace(false)
+    @Enabled(false)
+    static final class LayerEvent extends Event {
+        @Label("Layer")
+        int layer;
+        @Label("Feed Forward")
+        @Timespan
+        long feedForward;
+        @Label("Backpropagate")
+        @Timespan
+        long backpropagate;
+        @Label("Update")
+        @Timespan
+        long update;
+    }
+}
@@ -0,0 +1,37 @@
+package neuralnetwork;
+
+// Throughput and final loss of a training run, for comparing training modes on the same data
+public class TrainingReport {
+
+    private final long samples; // Number of samples trained on, counting every epoch
+    private final long nanoseconds; // Wall-clock time spent training
+    private final double loss; // Mean square error over the training set once training finished
+
+    public TrainingReport(long samples, long nanoseconds, double loss) {
+        this.samples = samples;
+        this.nanoseconds = nanoseconds;
+        this.loss = loss;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public double getSeconds() {
+        return nanoseconds / 1e9;
+    }
+
+    public double getSamplesPerSecond() {
+        return samples / getSeconds();
+    }
+
+    public double getLoss() {
+        return loss;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d samples in %.3f s (%.0f samples/s), loss %.6g",
+                samples, getSeconds(), getSamplesPerSecond(), loss);
+    }
+}
@@ -0,0 +1,489 @@
+package neuralnetwork;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/* SIMD backend using the widest vectors the CPU supports (4 doubles or 8 floats with AVX2, twice
+that with AVX-512). Each kernel processes whole vectors and finishes the remainder with the
+scalar loop. Multiplies and adds are kept separate rather than fused, so the element-wise kernels
+round exactly as the scalar ones do */
+final class VectorKernels extends Kernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    // Bytes are widened lane for lane, so a byte vector holds as many lanes as an int vector
+    private static final VectorSpecies<Byte> BYTE_SPECIES =
+            ByteVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(INT_SPECIES.length() * Byte.SIZE));
+
+    @Override
+    public String getName() {
+        return "vector (" + SPECIES.vectorBitSize() + "-bit)";
+    }
+
+    @Override
+    void axpy(double scale, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        int bound = SPECIES.loopBound(length);
+        DoubleVector scales = DoubleVector.broadcast(SPECIES, scale);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector products = DoubleVector.fromArray(SPECIES, x, xOffset + i).mul(scales);
+            DoubleVector.fromArray(SPECIES, y, yOffset + i).add(products).intoArray(y, yOffset + i);
+        }
+        super.axpy(scale, x, xOffset + i, y, yOffset + i, length - i);
+    }
+
+    @Override
+    void add(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i)
+                    .add(DoubleVector.fromArray(SPECIES, b, bOffset + i))
+                    .intoArray(out, outOffset + i);
+        }
+        super.add(a, aOffset + i, b, bOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void subtract(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i)
+                    .sub(DoubleVector.fromArray(SPECIES, b, bOffset + i))
+                    .intoArray(out, outOffset + i);
+        }
+        super.subtract(a, aOffset + i, b, bOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void multiply(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i)
+                    .mul(DoubleVector.fromArray(SPECIES, b, bOffset + i))
+                    .intoArray(out, outOffset + i);
+        }
+        super.multiply(a, aOffset + i, b, bOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void divide(double[] in, int inOffset, double divisor, double[] out, int outOffset, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, in, inOffset + i).div(divisor).intoArray(out, outOffset + i);
+        super.divide(in, inOffset + i, divisor, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void sigmoid(double[] in, int inOffset, double[] out, int outOffset, int length) {
+        int bound = SPECIES.loopBound(length);
+        DoubleVector ones = DoubleVector.broadcast(SPECIES, 1.0);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector exponentials = DoubleVector.fromArray(SPECIES, in, inOffset + i)
+                    .neg()
+                    .lanewise(VectorOperators.EXP);
+            ones.div(exponentials.add(1.0)).intoArray(out, outOffset + i);
+        }
+        super.sigmoid(in, inOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void tanh(double[] in, int inOffset, double[] out, int outOffset, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, in, inOffset + i)
+                    .lanewise(VectorOperators.TANH)
+                    .intoArray(out, outOffset + i);
+        }
+        super.tanh(in, inOffset + i, out, outOffset + i, length - i);
+    }
+
+    // The vector lanes are summed separately and then together, so the order of addition differs
+    @Override
+    double exp(double[] in, int inOffset, double shift, double[] out, int outOffset, int length) {
+        if (length < SPECIES.length()) // Not worth reducing an empty vector of sums
+            return super.exp(in, inOffset, shift, out, outOffset, length);
+        int bound = SPECIES.loopBound(length);
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector exponentials = DoubleVector.fromArray(SPECIES, in, inOffset + i)
+                    .sub(shift)
+                    .lanewise(VectorOperators.EXP);
+            exponentials.intoArray(out, outOffset + i);
+            sums = sums.add(exponentials);
+        }
+        return sums.reduceLanes(VectorOperators.ADD)
+                + super.exp(in, inOffset + i, shift, out, outOffset + i, length - i);
+    }
+
+    @Override
+    double max(double[] in, int inOffset, int length) {
+        if (length < SPECIES.length())
+            return super.max(in, inOffset, length);
+        int bound = SPECIES.loopBound(length);
+        DoubleVector maxima = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length())
+            maxima = maxima.max(DoubleVector.fromArray(SPECIES, in, inOffset + i));
+        return Math.max(maxima.reduceLanes(VectorOperators.MAX), super.max(in, inOffset + i, length - i));
+    }
+
+    @Override
+    void logisticDerivative(double[] in, int inOffset, double[] out, int outOffset, int length) {
+        int bound = SPECIES.loopBound(length);
+        DoubleVector ones = DoubleVector.broadcast(SPECIES, 1.0);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, in, inOffset + i);
+            x.mul(ones.sub(x)).intoArray(out, outOffset + i);
+        }
+        super.logisticDerivative(in, inOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void tanhDerivative(double[] in, int inOffset, double[] out, int outOffset, int length) {
+        int bound = SPECIES.loopBound(length);
+        DoubleVector ones = DoubleVector.broadcast(SPECIES, 1.0);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, in, inOffset + i);
+            ones.sub(x.mul(x)).intoArray(out, outOffset + i);
+        }
+        super.tanhDerivative(in, inOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void axpy(float scale, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        FloatVector scales = FloatVector.broadcast(FLOAT_SPECIES, scale);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector products = FloatVector.fromArray(FLOAT_SPECIES, x, xOffset + i).mul(scales);
+            FloatVector.fromArray(FLOAT_SPECIES, y, yOffset + i).add(products).intoArray(y, yOffset + i);
+        }
+        super.axpy(scale, x, xOffset + i, y, yOffset + i, length - i);
+    }
+
+    @Override
+    void add(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector.fromArray(FLOAT_SPECIES, a, aOffset + i)
+                    .add(FloatVector.fromArray(FLOAT_SPECIES, b, bOffset + i))
+                    .intoArray(out, outOffset + i);
+        }
+        super.add(a, aOffset + i, b, bOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void subtract(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector.fromArray(FLOAT_SPECIES, a, aOffset + i)
+                    .sub(FloatVector.fromArray(FLOAT_SPECIES, b, bOffset + i))
+                    .intoArray(out, outOffset + i);
+        }
+        super.subtract(a, aOffset + i, b, bOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void multiply(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector.fromArray(FLOAT_SPECIES, a, aOffset + i)
+                    .mul(FloatVector.fromArray(FLOAT_SPECIES, b, bOffset + i))
+                    .intoArray(out, outOffset + i);
+        }
+        super.multiply(a, aOffset + i, b, bOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void divide(float[] in, int inOffset, float divisor, float[] out, int outOffset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length())
+            FloatVector.fromArray(FLOAT_SPECIES, in, inOffset + i).div(divisor).intoArray(out, outOffset + i);
+        super.divide(in, inOffset + i, divisor, out, outOffset + i, length - i);
+    }
+
+    // The float transcendental operators are accurate to about 1 ulp of a float rather than correctly rounded
+    @Override
+    void sigmoid(float[] in, int inOffset, float[] out, int outOffset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        FloatVector ones = FloatVector.broadcast(FLOAT_SPECIES, 1f);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector exponentials = FloatVector.fromArray(FLOAT_SPECIES, in, inOffset + i)
+                    .neg()
+                    .lanewise(VectorOperators.EXP);
+            ones.div(exponentials.add(1f)).intoArray(out, outOffset + i);
+        }
+        super.sigmoid(in, inOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void tanh(float[] in, int inOffset, float[] out, int outOffset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector.fromArray(FLOAT_SPECIES, in, inOffset + i)
+                    .lanewise(VectorOperators.TANH)
+                    .intoArray(out, outOffset + i);
+        }
+        super.tanh(in, inOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    float exp(float[] in, int inOffset, float shift, float[] out, int outOffset, int length) {
+        if (length < FLOAT_SPECIES.length())
+            return super.exp(in, inOffset, shift, out, outOffset, length);
+        int bound = FLOAT_SPECIES.loopBound(length);
+        FloatVector sums = FloatVector.zero(FLOAT_SPECIES);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector exponentials = FloatVector.fromArray(FLOAT_SPECIES, in, inOffset + i)
+                    .sub(shift)
+                    .lanewise(VectorOperators.EXP);
+            exponentials.intoArray(out, outOffset + i);
+            sums = sums.add(exponentials);
+        }
+        return sums.reduceLanes(VectorOperators.ADD)
+                + super.exp(in, inOffset + i, shift, out, outOffset + i, length - i);
+    }
+
+    @Override
+    float max(float[] in, int inOffset, int length) {
+        if (length < FLOAT_SPECIES.length())
+            return super.max(in, inOffset, length);
+        int bound = FLOAT_SPECIES.loopBound(length);
+        FloatVector maxima = FloatVector.broadcast(FLOAT_SPECIES, Float.NEGATIVE_INFINITY);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length())
+            maxima = maxima.max(FloatVector.fromArray(FLOAT_SPECIES, in, inOffset + i));
+        return Math.max(maxima.reduceLanes(VectorOperators.MAX), super.max(in, inOffset + i, length - i));
+    }
+
+    @Override
+    void logisticDerivative(float[] in, int inOffset, float[] out, int outOffset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        FloatVector ones = FloatVector.broadcast(FLOAT_SPECIES, 1f);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(FLOAT_SPECIES, in, inOffset + i);
+            x.mul(ones.sub(x)).intoArray(out, outOffset + i);
+        }
+        super.logisticDerivative(in, inOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    void tanhDerivative(float[] in, int inOffset, float[] out, int outOffset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        FloatVector ones = FloatVector.broadcast(FLOAT_SPECIES, 1f);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(FLOAT_SPECIES, in, inOffset + i);
+            ones.sub(x.mul(x)).intoArray(out, outOffset + i);
+        }
+        super.tanhDerivative(in, inOffset + i, out, outOffset + i, length - i);
+    }
+
+    @Override
+    int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int bound = BYTE_SPECIES.loopBound(length);
+        IntVector sums = IntVector.zero(INT_SPECIES);
+        int i = 0;
+        for (; i < bound; i += BYTE_SPECIES.length()) {
+            IntVector x = (IntVector) ByteVector.fromArray(BYTE_SPECIES, a, aOffset + i)
+                    .convertShape(VectorOperators.B2I, INT_SPECIES, 0);
+            IntVector y = (IntVector) ByteVector.fromArray(BYTE_SPECIES, b, bOffset + i)
+                    .convertShape(VectorOperators.B2I, INT_SPECIES, 0);
+            sums = sums.add(x.mul(y));
+        }
+        return sums.reduceLanes(VectorOperators.ADD) + super.dot(a, aOffset + i, b, bOffset + i, length - i);
+    }
+
+    @Override
+    void applyDeltas(double[] parameters, int parameterOffset, double[] deltas, int offset, int length) {
+        int bound = SPECIES.loopBound(length);
+        DoubleVector zeros = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, parameters, parameterOffset + i)
+                    .add(DoubleVector.fromArray(SPECIES, deltas, offset + i))
+                    .intoArray(parameters, parameterOffset + i);
+            zeros.intoArray(deltas, offset + i);
+        }
+        super.applyDeltas(parameters, parameterOffset + i, deltas, offset + i, length - i);
+    }
+
+    @Override
+    void momentum(double momentum, boolean nesterov, double[] parameters, int parameterOffset, double[] deltas,
+                  double[] velocity, int offset, int length) {
+        int bound = SPECIES.loopBound(length);
+        DoubleVector momenta = DoubleVector.broadcast(SPECIES, momentum);
+        DoubleVector zeros = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector delta = DoubleVector.fromArray(SPECIES, deltas, offset + i);
+            DoubleVector next = DoubleVector.fromArray(SPECIES, velocity, offset + i).mul(momenta).add(delta);
+            next.intoArray(velocity, offset + i);
+            DoubleVector.fromArray(SPECIES, parameters, parameterOffset + i)
+                    .add(nesterov ? next.mul(momenta).add(delta) : next)
+                    .intoArray(parameters, parameterOffset + i);
+            zeros.intoArray(deltas, offset + i);
+        }
+        super.momentum(momentum, nesterov, parameters, parameterOffset + i, deltas, velocity, offset + i, length - i);
+    }
+
+    @Override
+    void rmsProp(double decay, double rate, double epsilon, double[] parameters, int parameterOffset,
+                 double[] deltas, double[] meanSquare, int offset, int length) {
+        int bound = SPECIES.loopBound(length);
+        DoubleVector decays = DoubleVector.broadcast(SPECIES, decay);
+        DoubleVector rates = DoubleVector.broadcast(SPECIES, rate);
+        double complement = 1 - decay;
+        DoubleVector zeros = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector delta = DoubleVector.fromArray(SPECIES, deltas, offset + i);
+            DoubleVector next = DoubleVector.fromArray(SPECIES, meanSquare, offset + i).mul(decays)
+                    .add(delta.mul(delta).mul(complement));
+            next.intoArray(meanSquare, offset + i);
+            DoubleVector.fromArray(SPECIES, parameters, parameterOffset + i)
+                    .add(rates.mul(delta).div(next.lanewise(VectorOperators.SQRT).add(epsilon)))
+                    .intoArray(parameters, parameterOffset + i);
+            zeros.intoArray(deltas, offset + i);
+        }
+        super.rmsProp(decay, rate, epsilon, parameters, parameterOffset + i, deltas, meanSquare, offset + i, length - i);
+    }
+
+    @Override
+    void adam(double beta1, double beta2, double stepSize, double squareCorrection, double epsilon,
+              double[] parameters, int parameterOffset, double[] deltas, double[] mean, double[] meanSquare,
+              int offset, int length) {
+        int bound = SPECIES.loopBound(length);
+        DoubleVector beta1s = DoubleVector.broadcast(SPECIES, beta1);
+        DoubleVector beta2s = DoubleVector.broadcast(SPECIES, beta2);
+        DoubleVector stepSizes = DoubleVector.broadcast(SPECIES, stepSize);
+        double complement1 = 1 - beta1;
+        double complement2 = 1 - beta2;
+        DoubleVector zeros = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector delta = DoubleVector.fromArray(SPECIES, deltas, offset + i);
+            DoubleVector nextMean = DoubleVector.fromArray(SPECIES, mean, offset + i).mul(beta1s)
+                    .add(delta.mul(complement1));
+            DoubleVector nextSquare = DoubleVector.fromArray(SPECIES, meanSquare, offset + i).mul(beta2s)
+                    .add(delta.mul(delta).mul(complement2));
+            nextMean.intoArray(mean, offset + i);
+            nextSquare.intoArray(meanSquare, offset + i);
+            DoubleVector denominator = nextSquare.mul(squareCorrection).lanewise(VectorOperators.SQRT).add(epsilon);
+            DoubleVector.fromArray(SPECIES, parameters, parameterOffset + i)
+                    .add(stepSizes.mul(nextMean).div(denominator))
+                    .intoArray(parameters, parameterOffset + i);
+            zeros.intoArray(deltas, offset + i);
+        }
+        super.adam(beta1, beta2, stepSize, squareCorrection, epsilon, parameters, parameterOffset + i, deltas,
+                mean, meanSquare, offset + i, length - i);
+    }
+
+    @Override
+    void applyDeltas(float[] parameters, int parameterOffset, float[] deltas, int offset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        FloatVector zeros = FloatVector.zero(FLOAT_SPECIES);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector.fromArray(FLOAT_SPECIES, parameters, parameterOffset + i)
+                    .add(FloatVector.fromArray(FLOAT_SPECIES, deltas, offset + i))
+                    .intoArray(parameters, parameterOffset + i);
+            zeros.intoArray(deltas, offset + i);
+        }
+        super.applyDeltas(parameters, parameterOffset + i, deltas, offset + i, length - i);
+    }
+
+    @Override
+    void momentum(float momentum, boolean nesterov, float[] parameters, int parameterOffset, float[] deltas,
+                  float[] velocity, int offset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        FloatVector momenta = FloatVector.broadcast(FLOAT_SPECIES, momentum);
+        FloatVector zeros = FloatVector.zero(FLOAT_SPECIES);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector delta = FloatVector.fromArray(FLOAT_SPECIES, deltas, offset + i);
+            FloatVector next = FloatVector.fromArray(FLOAT_SPECIES, velocity, offset + i).mul(momenta).add(delta);
+            next.intoArray(velocity, offset + i);
+            FloatVector.fromArray(FLOAT_SPECIES, parameters, parameterOffset + i)
+                    .add(nesterov ? next.mul(momenta).add(delta) : next)
+                    .intoArray(parameters, parameterOffset + i);
+            zeros.intoArray(deltas, offset + i);
+        }
+        super.momentum(momentum, nesterov, parameters, parameterOffset + i, deltas, velocity, offset + i, length - i);
+    }
+
+    @Override
+    void rmsProp(float decay, float rate, float epsilon, float[] parameters, int parameterOffset,
+                 float[] deltas, float[] meanSquare, int offset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        FloatVector decays = FloatVector.broadcast(FLOAT_SPECIES, decay);
+        FloatVector rates = FloatVector.broadcast(FLOAT_SPECIES, rate);
+        float complement = 1 - decay;
+        FloatVector zeros = FloatVector.zero(FLOAT_SPECIES);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector delta = FloatVector.fromArray(FLOAT_SPECIES, deltas, offset + i);
+            FloatVector next = FloatVector.fromArray(FLOAT_SPECIES, meanSquare, offset + i).mul(decays)
+                    .add(delta.mul(delta).mul(complement));
+            next.intoArray(meanSquare, offset + i);
+            FloatVector.fromArray(FLOAT_SPECIES, parameters, parameterOffset + i)
+                    .add(rates.mul(delta).div(next.lanewise(VectorOperators.SQRT).add(epsilon)))
+                    .intoArray(parameters, parameterOffset + i);
+            zeros.intoArray(deltas, offset + i);
+        }
+        super.rmsProp(decay, rate, epsilon, parameters, parameterOffset + i, deltas, meanSquare, offset + i, length - i);
+    }
+
+    @Override
+    void adam(float beta1, float beta2, float stepSize, float squareCorrection, float epsilon,
+              float[] parameters, int parameterOffset, float[] deltas, float[] mean, float[] meanSquare,
+              int offset, int length) {
+        int bound = FLOAT_SPECIES.loopBound(length);
+        FloatVector beta1s = FloatVector.broadcast(FLOAT_SPECIES, beta1);
+        FloatVector beta2s = FloatVector.broadcast(FLOAT_SPECIES, beta2);
+        FloatVector stepSizes = FloatVector.broadcast(FLOAT_SPECIES, stepSize);
+        float complement1 = 1 - beta1;
+        float complement2 = 1 - beta2;
+        FloatVector zeros = FloatVector.zero(FLOAT_SPECIES);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector delta = FloatVector.fromArray(FLOAT_SPECIES, deltas, offset + i);
+            FloatVector nextMean = FloatVector.fromArray(FLOAT_SPECIES, mean, offset + i).mul(beta1s)
+                    .add(delta.mul(complement1));
+            FloatVector nextSquare = FloatVector.fromArray(FLOAT_SPECIES, meanSquare, offset + i).mul(beta2s)
+                    .add(delta.mul(delta).mul(complement2));
+            nextMean.intoArray(mean, offset + i);
+            nextSquare.intoArray(meanSquare, offset + i);
+            FloatVector denominator = nextSquare.mul(squareCorrection).lanewise(VectorOperators.SQRT).add(epsilon);
+            FloatVector.fromArray(FLOAT_SPECIES, parameters, parameterOffset + i)
+                    .add(stepSizes.mul(nextMean).div(denominator))
+                    .intoArray(parameters, parameterOffset + i);
+            zeros.intoArray(deltas, offset + i);
+        }
+        super.adam(beta1, beta2, stepSize, squareCorrection, epsilon, parameters, parameterOffset + i, deltas,
+                mean, meanSquare, offset + i, length - i);
+    }
+}
@@ -0,0 +1,131 @@
+package neuralnetwork;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/* Checks that training steps allocate nothing once warmed up, by counting the bytes the calling
+thread allocates over whole epochs. Each network is the Iris topology trained on as many samples
+as Iris has, in batches that leave a short final batch, so the views of both batch sizes are
+exercised. Until the JIT has compiled the loop, the SIMD kernels' vectors are real objects, so
+training first runs until an epoch allocates nothing; an allocation left in the steady state never
+gets there. Skipped when the JVM cannot count allocations per thread */
+class AllocationTest {
+
+    private static final int SAMPLES = 105; // Iris training samples
+    private static final int BATCH_SIZE = 8; // Leaves a final batch of one sample
+    private static final int MAX_WARMUP_EPOCHS = 20000; // Far more than compiling the loop takes
+    private static final int MEASURED_EPOCHS = 10;
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    @BeforeAll
+    static void enableAllocationCounting() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "This JVM cannot count allocated bytes");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "This JVM cannot count allocated bytes");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    void trainingEpochAllocatesNothing() {
+        for (Precision precision : Precision.values())
+            assertEquals(0, epochAllocation(network(precision)), precision + " epoch allocated");
+    }
+
+    // Every optimizer updates parameters and state in place
+    @Test
+    void optimizerUpdatesAllocateNothing() {
+        for (Optimizer optimizer : List.of(new SGD(), new Momentum(), new Nesterov(), new RMSProp(), new Adam())) {
+            for (Precision precision : Precision.values()) {
+                NeuralNetwork network = network(precision);
+                network.setOptimizer(optimizer);
+                assertEquals(0, epochAllocation(network),
+                        optimizer.getClass().getSimpleName() + " " + precision + " epoch allocated");
+            }
+        }
+    }
+
+    /* Measuring reuses one step object and the listener's counters, so attaching metrics adds no
+    allocation to a step. Only endEpoch creates a report, so no epoch is ended while measuring */
+    @Test
+    void measuredStepsAllocateNothing() {
+        for (boolean recordAllocations : new boolean[] {false, true}) {
+            NeuralNetwork network = network(Precision.DOUBLE);
+            TrainingMetrics metrics = new TrainingMetrics(recordAllocations);
+            long[] last = new long[2]; // Samples and allocated bytes of the latest step
+            metrics.addListener(new TrainingListener() {
+                @Override
+                public void onStep(TrainingMetrics.Step step) {
+                    last[0] = step.getSamples();
+                    last[1] = step.getAllocatedBytes();
+                }
+            });
+            network.setMetrics(metrics);
+            assertEquals(0, epochAllocation(network), "Epoch with metrics allocated");
+            assertEquals(SAMPLES % BATCH_SIZE, last[0], "Final step's samples");
+            // The metrics' own count of the final step agrees
+            assertEquals(recordAllocations ? 0 : -1, last[1], "Final step's allocated bytes");
+        }
+    }
+
+    // Iris's 4-5-5-5-3 network
+    static NeuralNetwork network(Precision precision) {
+        return new NeuralNetwork(new ArrayList<>(List.of(4, 5, 5, 5, 3)),
+                new ArrayList<>(List.of(new Sigmoid(), new Tanh(), new Sigmoid(), new Softmax())), 0.01, precision);
+    }
+
+    // Trains the network until warmed up, then returns the bytes allocated by the following epochs
+    static long epochAllocation(NeuralNetwork network) {
+        Random random = new Random(0);
+        Matrix inputs = new Matrix(SAMPLES, 4);
+        Matrix outputs = new Matrix(SAMPLES, 3);
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            for (int feature = 0; feature < 4; feature++)
+                inputs.setElement(random.nextDouble() * 8, sample, feature);
+            outputs.setElement(1, sample, random.nextInt(3));
+        }
+        BatchBuffer inputBuffer = new BatchBuffer(4, BATCH_SIZE);
+        BatchBuffer outputBuffer = new BatchBuffer(3, BATCH_SIZE);
+        long thread = Thread.currentThread().getId();
+        long allocated = -1;
+        for (int epoch = 0; epoch < MAX_WARMUP_EPOCHS && allocated != 0; epoch++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            trainEpoch(network, inputs, outputs, inputBuffer, outputBuffer);
+            allocated = threads.getThreadAllocatedBytes(thread) - before;
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int epoch = 0; epoch < MEASURED_EPOCHS; epoch++)
+            trainEpoch(network, inputs, outputs, inputBuffer, outputBuffer);
+        return threads.getThreadAllocatedBytes(thread) - before;
+    }
+
+    private static void trainEpoch(NeuralNetwork network, Matrix inputs, Matrix outputs, BatchBuffer inputBuffer,
+                                   BatchBuffer outputBuffer) {
+        for (int start = 0; start < SAMPLES; start += BATCH_SIZE) {
+            int rows = Math.min(BATCH_SIZE, SAMPLES - start);
+            Matrix batchInputs = gather(inputs, start, inputBuffer.rows(rows));
+            Matrix batchOutputs = gather(outputs, start, outputBuffer.rows(rows));
+            network.feedForward(batchInputs);
+            network.backpropagate(batchOutputs);
+            network.updateWeights();
+        }
+    }
+
+    // Copies the rows from 'start' into the batch one element at a time, which allocates nothing
+    private static Matrix gather(Matrix source, int start, Matrix batch) {
+        for (int row = 0; row < batch.getRows(); row++) {
+            for (int col = 0; col < batch.getCols(); col++)
+                batch.setElement(source.getElement(start + row, col), row, col);
+        }
+        return batch;
+    }
+}
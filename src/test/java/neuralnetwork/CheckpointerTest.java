@@ -0,0 +1,44 @@
+package neuralnetwork;
+
+import jdk.incubator.foreign.ResourceScope;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CheckpointerTest {
+
+    /* The background writer cannot touch memory confined to the training thread, so the snapshot
+    it writes must have been copied out on that thread */
+    @Test
+    void checkpointsConfinedOffHeapNetwork(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("network.checkpoint");
+        try (ResourceScope scope = ResourceScope.newConfinedScope()) {
+            NeuralNetwork network = new NeuralNetwork(new ArrayList<>(List.of(4, 5, 3)),
+                    new ArrayList<>(List.of(new Sigmoid(), new Softmax())), 0.01, Precision.DOUBLE, scope);
+            try (Checkpointer checkpointer = new Checkpointer(file, 2)) {
+                checkpointer.onEpoch(network, 1);
+            }
+            NeuralNetwork loaded = ModelCheckpoint.load(file);
+            assertEquals(network.getLayerCount(), loaded.getLayerCount());
+            for (int index = 0; index < network.getLayerCount(); index++) {
+                assertSameValues(network.getLayer(index).getWeights(), loaded.getLayer(index).getWeights());
+                assertSameValues(network.getLayer(index).getBiases(), loaded.getLayer(index).getBiases());
+            }
+        }
+    }
+
+    static void assertSameValues(Matrix expected, Matrix actual) {
+        assertEquals(expected.getRows(), actual.getRows(), "Rows");
+        assertEquals(expected.getCols(), actual.getCols(), "Columns");
+        for (int row = 0; row < expected.getRows(); row++) {
+            for (int col = 0; col < expected.getCols(); col++)
+                assertEquals(expected.getElement(row, col), actual.getElement(row, col), "Element " + row + ", " + col);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package neuralnetwork;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/* Checks the SIMD backend against the scalar one on every length from 0 to 69 at unaligned offsets,
+so that the vector loop, the scalar tail and the empty run of each kernel are all exercised. The
+linear kernels must match bit for bit; the transcendental ones, whose vector versions are
+approximations and whose sums are added in another order, within a few units in the last place.
+Skipped when the jdk.incubator.vector module is absent */
+class KernelsTest {
+
+    private static final int MAX_LENGTH = 69;
+    private static final int[] OFFSETS = {0, 1, 3, 7}; // Of the first operand; the others are shifted from it
+    private static final int PADDING = 8; // Values either side of each run, which no kernel may touch
+
+    private static final Kernels scalar = new Kernels();
+    private static Kernels vector;
+
+    @BeforeAll
+    static void loadVectorBackend() throws ReflectiveOperationException {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "Run with --add-modules jdk.incubator.vector to test the SIMD backend");
+        vector = (Kernels) Class.forName("neuralnetwork.VectorKernels").getDeclaredConstructor().newInstance();
+    }
+
+    // Calls one double-precision kernel on a run of 'length' values at the given offsets
+    private interface DoubleKernel {
+        void apply(Kernels kernels, double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset,
+                   int length);
+    }
+
+    private interface FloatKernel {
+        void apply(Kernels kernels, float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset,
+                   int length);
+    }
+
+    // Calls one fused optimizer update with up to two arrays of state, which share the deltas' offset
+    private interface DoubleUpdate {
+        void apply(Kernels kernels, double[] parameters, int parameterOffset, double[] deltas, double[] first,
+                   double[] second, int offset, int length);
+    }
+
+    private interface FloatUpdate {
+        void apply(Kernels kernels, float[] parameters, int parameterOffset, float[] deltas, float[] first,
+                   float[] second, int offset, int length);
+    }
+
+    @Test
+    void linearDoubleKernelsAreBitExact() {
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> k.axpy(0.37, a, ao, out, oo, n), 0);
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> k.add(a, ao, b, bo, out, oo, n), 0);
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> k.subtract(a, ao, b, bo, out, oo, n), 0);
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> k.multiply(a, ao, b, bo, out, oo, n), 0);
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> k.divide(a, ao, 3.1, out, oo, n), 0);
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> k.logisticDerivative(a, ao, out, oo, n), 0);
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> k.tanhDerivative(a, ao, out, oo, n), 0);
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> out[oo] = k.max(a, ao, n), 0);
+    }
+
+    @Test
+    void linearFloatKernelsAreBitExact() {
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> k.axpy(0.37f, a, ao, out, oo, n), 0);
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> k.add(a, ao, b, bo, out, oo, n), 0);
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> k.subtract(a, ao, b, bo, out, oo, n), 0);
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> k.multiply(a, ao, b, bo, out, oo, n), 0);
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> k.divide(a, ao, 3.1f, out, oo, n), 0);
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> k.logisticDerivative(a, ao, out, oo, n), 0);
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> k.tanhDerivative(a, ao, out, oo, n), 0);
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> out[oo] = k.max(a, ao, n), 0);
+    }
+
+    @Test
+    void transcendentalDoubleKernelsAreWithinUlps() {
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> k.sigmoid(a, ao, out, oo, n), 2);
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> k.tanh(a, ao, out, oo, n), 2);
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> k.exp(a, ao, 1.5, out, oo, n), 2);
+        /* Softmax of the run as Softmax computes it: exponentials divided by their sum, whose rounding
+        error grows with the number of values added */
+        checkDouble((k, a, ao, b, bo, out, oo, n) -> k.divide(out, oo, k.exp(a, ao, k.max(a, ao, n), out, oo, n),
+                out, oo, n), 2, 1);
+    }
+
+    @Test
+    void transcendentalFloatKernelsAreWithinUlps() {
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> k.sigmoid(a, ao, out, oo, n), 2);
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> k.tanh(a, ao, out, oo, n), 2);
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> k.exp(a, ao, 1.5f, out, oo, n), 2);
+        checkFloat((k, a, ao, b, bo, out, oo, n) -> k.divide(out, oo, k.exp(a, ao, k.max(a, ao, n), out, oo, n),
+                out, oo, n), 2, 1);
+    }
+
+    // The sums returned by exp differ only by the order of addition
+    @Test
+    void exponentialSumsAreWithinRoundingOfEachOther() {
+        Random random = new Random(0);
+        for (int length = 0; length <= MAX_LENGTH; length++) {
+            for (int offset : OFFSETS) {
+                double[] in = values(random, offset + length + PADDING, 10);
+                double expected = scalar.exp(in, offset, 0, new double[length], 0, length);
+                double actual = vector.exp(in, offset, 0, new double[length], 0, length);
+                assertEquals(expected, actual, 2 * length * Math.ulp(expected), "length " + length);
+                float[] floats = floatValues(random, offset + length + PADDING, 10);
+                float expectedFloat = scalar.exp(floats, offset, 0f, new float[length], 0, length);
+                float actualFloat = vector.exp(floats, offset, 0f, new float[length], 0, length);
+                assertEquals(expectedFloat, actualFloat, 2 * length * Math.ulp(expectedFloat), "length " + length);
+            }
+        }
+    }
+
+    // The quantized dot product sums in int, so any order of addition gives the same result
+    @Test
+    void quantizedDotProductIsExact() {
+        Random random = new Random(0);
+        for (int length = 0; length <= MAX_LENGTH; length++) {
+            for (int offset : OFFSETS) {
+                int bOffset = (offset + 2) % PADDING;
+                byte[] a = quantizedValues(random, offset + length + PADDING);
+                byte[] b = quantizedValues(random, bOffset + length + PADDING);
+                assertEquals(scalar.dot(a, offset, b, bOffset, length), vector.dot(a, offset, b, bOffset, length),
+                        "length " + length + ", offset " + offset);
+            }
+        }
+        // The extremes, where a narrower accumulator would overflow
+        byte[] extremes = new byte[MAX_LENGTH];
+        Arrays.fill(extremes, (byte) -127);
+        assertEquals(MAX_LENGTH * 127 * 127, vector.dot(extremes, 0, extremes, 0, MAX_LENGTH));
+    }
+
+    // The optimizer kernels must update parameters and state exactly as the scalar loop does
+    @Test
+    void doubleOptimizerUpdatesAreBitExact() {
+        checkDouble((k, p, po, d, s1, s2, o, n) -> k.applyDeltas(p, po, d, o, n));
+        checkDouble((k, p, po, d, s1, s2, o, n) -> k.momentum(0.9, false, p, po, d, s1, o, n));
+        checkDouble((k, p, po, d, s1, s2, o, n) -> k.momentum(0.9, true, p, po, d, s1, o, n));
+        checkDouble((k, p, po, d, s1, s2, o, n) -> k.rmsProp(0.9, 0.01, 1e-10, p, po, d, s1, o, n));
+        checkDouble((k, p, po, d, s1, s2, o, n) -> k.adam(0.9, 0.999, 0.02, 1.3, 1e-10, p, po, d, s1, s2, o, n));
+    }
+
+    @Test
+    void floatOptimizerUpdatesAreBitExact() {
+        checkFloat((k, p, po, d, s1, s2, o, n) -> k.applyDeltas(p, po, d, o, n));
+        checkFloat((k, p, po, d, s1, s2, o, n) -> k.momentum(0.9f, false, p, po, d, s1, o, n));
+        checkFloat((k, p, po, d, s1, s2, o, n) -> k.momentum(0.9f, true, p, po, d, s1, o, n));
+        checkFloat((k, p, po, d, s1, s2, o, n) -> k.rmsProp(0.9f, 0.01f, 1e-6f, p, po, d, s1, o, n));
+        checkFloat((k, p, po, d, s1, s2, o, n) -> k.adam(0.9f, 0.999f, 0.02f, 1.3f, 1e-6f, p, po, d, s1, s2, o, n));
+    }
+
+    private static void checkDouble(DoubleKernel kernel, int ulps) {
+        checkDouble(kernel, ulps, 0);
+    }
+
+    /* Runs the kernel on both backends over the same inputs and compares every output value,
+    allowing 'ulps' plus 'ulpsPerValue' for each value in the run */
+    private static void checkDouble(DoubleKernel kernel, int ulps, int ulpsPerValue) {
+        Random random = new Random(0);
+        for (int length = 0; length <= MAX_LENGTH; length++) {
+            for (int offset : OFFSETS) {
+                int bOffset = (offset + 2) % PADDING;
+                int outOffset = (offset + 5) % PADDING;
+                double[] a = values(random, offset + length + PADDING, 20);
+                double[] b = values(random, bOffset + length + PADDING, 20);
+                double[] initial = values(random, outOffset + length + PADDING, 20);
+                double[] expected = initial.clone();
+                double[] actual = initial.clone();
+                kernel.apply(scalar, a.clone(), offset, b.clone(), bOffset, expected, outOffset, length);
+                kernel.apply(vector, a.clone(), offset, b.clone(), bOffset, actual, outOffset, length);
+                String context = "length " + length + ", offset " + offset;
+                if (ulps == 0 && ulpsPerValue == 0) {
+                    assertArrayEquals(expected, actual, context);
+                    continue;
+                }
+                for (int i = 0; i < expected.length; i++) {
+                    double difference = Math.abs(expected[i] - actual[i]);
+                    assertTrue(difference <= (ulps + ulpsPerValue * length) * Math.ulp(expected[i]),
+                            context + ", index " + i + ": " + expected[i] + " vs " + actual[i]);
+                }
+            }
+        }
+    }
+
+    private static void checkFloat(FloatKernel kernel, int ulps) {
+        checkFloat(kernel, ulps, 0);
+    }
+
+    private static void checkFloat(FloatKernel kernel, int ulps, int ulpsPerValue) {
+        Random random = new Random(0);
+        for (int length = 0; length <= MAX_LENGTH; length++) {
+            for (int offset : OFFSETS) {
+                int bOffset = (offset + 2) % PADDING;
+                int outOffset = (offset + 5) % PADDING;
+                float[] a = floatValues(random, offset + length + PADDING, 20);
+                float[] b = floatValues(random, bOffset + length + PADDING, 20);
+                float[] initial = floatValues(random, outOffset + length + PADDING, 20);
+                float[] expected = initial.clone();
+                float[] actual = initial.clone();
+                kernel.apply(scalar, a.clone(), offset, b.clone(), bOffset, expected, outOffset, length);
+                kernel.apply(vector, a.clone(), offset, b.clone(), bOffset, actual, outOffset, length);
+                String context = "length " + length + ", offset " + offset;
+                if (ulps == 0 && ulpsPerValue == 0) {
+                    assertArrayEquals(expected, actual, context);
+                    continue;
+                }
+                for (int i = 0; i < expected.length; i++) {
+                    float difference = Math.abs(expected[i] - actual[i]);
+                    assertTrue(difference <= (ulps + ulpsPerValue * length) * Math.ulp(expected[i]),
+                            context + ", index " + i + ": " + expected[i] + " vs " + actual[i]);
+                }
+            }
+        }
+    }
+
+    /* Runs the update on both backends from the same parameters, deltas and state, and requires every
+    array to match bit for bit afterwards, with the deltas of the run zeroed */
+    private static void checkDouble(DoubleUpdate update) {
+        Random random = new Random(0);
+        for (int length = 0; length <= MAX_LENGTH; length++) {
+            for (int offset : OFFSETS) {
+                int parameterOffset = (offset + 3) % PADDING;
+                double[][] expected = {
+                        values(random, parameterOffset + length + PADDING, 1),
+                        values(random, offset + length + PADDING, 0.1),
+                        values(random, offset + length + PADDING, 0.1),
+                        squares(values(random, offset + length + PADDING, 0.1))};
+                double[][] actual = new double[expected.length][];
+                for (int i = 0; i < expected.length; i++)
+                    actual[i] = expected[i].clone();
+                double[] untouched = expected[1].clone();
+                update.apply(scalar, expected[0], parameterOffset, expected[1], expected[2], expected[3], offset,
+                        length);
+                update.apply(vector, actual[0], parameterOffset, actual[1], actual[2], actual[3], offset, length);
+                String context = "length " + length + ", offset " + offset;
+                for (int i = 0; i < expected.length; i++)
+                    assertArrayEquals(expected[i], actual[i], context + ", array " + i);
+                Arrays.fill(untouched, offset, offset + length, 0);
+                assertArrayEquals(untouched, actual[1], context + ", deltas");
+            }
+        }
+    }
+
+    private static void checkFloat(FloatUpdate update) {
+        Random random = new Random(0);
+        for (int length = 0; length <= MAX_LENGTH; length++) {
+            for (int offset : OFFSETS) {
+                int parameterOffset = (offset + 3) % PADDING;
+                float[][] expected = {
+                        floatValues(random, parameterOffset + length + PADDING, 1),
+                        floatValues(random, offset + length + PADDING, 0.1),
+                        floatValues(random, offset + length + PADDING, 0.1),
+                        squares(floatValues(random, offset + length + PADDING, 0.1))};
+                float[][] actual = new float[expected.length][];
+                for (int i = 0; i < expected.length; i++)
+                    actual[i] = expected[i].clone();
+                float[] untouched = expected[1].clone();
+                update.apply(scalar, expected[0], parameterOffset, expected[1], expected[2], expected[3], offset,
+                        length);
+                update.apply(vector, actual[0], parameterOffset, actual[1], actual[2], actual[3], offset, length);
+                String context = "length " + length + ", offset " + offset;
+                for (int i = 0; i < expected.length; i++)
+                    assertArrayEquals(expected[i], actual[i], context + ", array " + i);
+                Arrays.fill(untouched, offset, offset + length, 0);
+                assertArrayEquals(untouched, actual[1], context + ", deltas");
+            }
+        }
+    }
+
+    // Squares the values in place, for state such as mean squares that is never negative
+    private static double[] squares(double[] values) {
+        for (int i = 0; i < values.length; i++)
+            values[i] *= values[i];
+        return values;
+    }
+
+    private static float[] squares(float[] values) {
+        for (int i = 0; i < values.length; i++)
+            values[i] *= values[i];
+        return values;
+    }
+
+    // Uniform values in [-range, range)
+    static double[] values(Random random, int length, double range) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++)
+            values[i] = (random.nextDouble() * 2 - 1) * range;
+        return values;
+    }
+
+    static float[] floatValues(Random random, int length, double range) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++)
+            values[i] = (float) ((random.nextDouble() * 2 - 1) * range);
+        return values;
+    }
+
+    // Uniform values in [-127, 127], the symmetric range QuantizedModel uses
+    static byte[] quantizedValues(Random random, int length) {
+        byte[] values = new byte[length];
+        for (int i = 0; i < length; i++)
+            values[i] = (byte) (random.nextInt(255) - 127);
+        return values;
+    }
+}
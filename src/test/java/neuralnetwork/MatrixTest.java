@@ -0,0 +1,15 @@
+package neuralnetwork;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MatrixTest {
+
+    // 65536 * 65537 wraps around to 65536 in int arithmetic, which would allocate far too small an array
+    @Test
+    void rejectsShapesTooLargeForAnArray() {
+        for (Precision precision : Precision.values())
+            assertThrows(IllegalArgumentException.class, () -> new Matrix(65536, 65537, precision));
+    }
+}
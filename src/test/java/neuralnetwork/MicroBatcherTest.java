@@ -0,0 +1,93 @@
+package neuralnetwork;
+
+import jdk.incubator.foreign.ResourceScope;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MicroBatcherTest {
+
+    private static final long TIMEOUT_SECONDS = 10; // A request left unanswered fails rather than hangs
+
+    private final Random random = new Random(0);
+    private final Matrix weights = randomMatrix(4, 3);
+    private final Matrix biases = randomMatrix(1, 3);
+
+    // A batch that throws fails its own requests, and the dispatcher goes on to answer the next
+    @Test
+    void failedBatchFailsOnlyItsRequests() throws Exception {
+        AtomicBoolean failNext = new AtomicBoolean(true);
+        ActivationFunction failsOnce = new ActivationFunction() {
+            @Override
+            public void function(Matrix input, Matrix output) {
+                if (failNext.getAndSet(false))
+                    throw new Error("Injected failure");
+                new Sigmoid().function(input, output);
+            }
+
+            @Override
+            public double derivative(double x) {
+                return x * (1 - x);
+            }
+
+            @Override
+            public void derivative(Matrix output, Matrix result) {
+                new Sigmoid().derivative(output, result);
+            }
+        };
+        Matrix input = randomMatrix(1, 4);
+        try (MicroBatcher batcher = new MicroBatcher(model(failsOnce), 1, 0)) {
+            Future<Matrix> failed = batcher.submit(input);
+            assertThrows(ExecutionException.class, () -> failed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            CheckpointerTest.assertSameValues(model(new Sigmoid()).predict(input),
+                    batcher.submit(input).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    // The dispatcher thread cannot read memory confined to the caller, so submit copies it first
+    @Test
+    void acceptsInputConfinedToCaller() throws Exception {
+        InferenceModel model = model(new Sigmoid());
+        Matrix input = randomMatrix(2, 4);
+        try (MicroBatcher batcher = new MicroBatcher(model, 8, 0);
+             ResourceScope scope = ResourceScope.newConfinedScope()) {
+            Matrix confined = Matrix.allocateNative(2, 4, Precision.DOUBLE, scope);
+            input.copyInto(confined);
+            CheckpointerTest.assertSameValues(model.predict(input),
+                    batcher.submit(confined).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    // The request waits for others to join its batch while the caller overwrites its input
+    @Test
+    void callerMayReuseInputAfterSubmit() throws Exception {
+        InferenceModel model = model(new Sigmoid());
+        Matrix input = randomMatrix(1, 4);
+        Matrix expected = model.predict(input);
+        try (MicroBatcher batcher = new MicroBatcher(model, 8, 200_000)) {
+            Future<Matrix> result = batcher.submit(input);
+            input.fill(0);
+            CheckpointerTest.assertSameValues(expected, result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    private InferenceModel model(ActivationFunction activation) {
+        return new InferenceModel(new Matrix[] {weights}, new Matrix[] {biases}, new ActivationFunction[] {activation},
+                Gemm.getDefault());
+    }
+
+    private Matrix randomMatrix(int rows, int cols) {
+        Matrix matrix = new Matrix(rows, cols);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++)
+                matrix.setElement(random.nextDouble() * 2 - 1, row, col);
+        }
+        return matrix;
+    }
+}
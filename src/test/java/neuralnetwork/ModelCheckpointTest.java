@@ -0,0 +1,75 @@
+package neuralnetwork;
+
+import jdk.incubator.foreign.ResourceScope;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelCheckpointTest {
+
+    private final Random random = new Random(0);
+    private final Matrix inputs = randomMatrix(30, 4);
+    private final Matrix outputs = randomMatrix(30, 3);
+
+    // A network read back from its checkpoint computes exactly what the saved one did
+    @Test
+    void loadReproducesSavedNetwork(@TempDir Path directory) throws IOException {
+        for (Precision precision : Precision.values()) {
+            NeuralNetwork network = trainedNetwork(precision);
+            Path file = directory.resolve(precision + ".model");
+            ModelCheckpoint.save(network, file);
+            NeuralNetwork loaded = ModelCheckpoint.load(file);
+            assertEquals(precision, loaded.getPrecision());
+            for (int index = 0; index < network.getLayerCount(); index++) {
+                Layer expected = network.getLayer(index);
+                Layer actual = loaded.getLayer(index);
+                assertEquals(expected.getActivationFunction().getClass(), actual.getActivationFunction().getClass());
+                assertEquals(expected.getLearningRate(), actual.getLearningRate());
+            }
+            assertTrue(((Sigmoid) loaded.getLayer(0).getActivationFunction()).isApproximate(),
+                    "Approximate activations stay approximate");
+            assertEquals(network.meanSquareError(inputs, outputs), loaded.meanSquareError(inputs, outputs),
+                    precision + " loss");
+        }
+    }
+
+    // Serving straight from the mapped file gives the same predictions as the saved network
+    @Test
+    void mappedModelPredictsAsSavedNetwork(@TempDir Path directory) throws IOException {
+        NeuralNetwork network = trainedNetwork(Precision.DOUBLE);
+        Path file = directory.resolve("network.model");
+        ModelCheckpoint.save(network, file);
+        network.feedForward(inputs);
+        try (ResourceScope scope = ResourceScope.newConfinedScope()) {
+            CheckpointerTest.assertSameValues(network.getOutput(), ModelCheckpoint.map(file, scope).predict(inputs));
+        }
+    }
+
+    private NeuralNetwork trainedNetwork(Precision precision) {
+        NeuralNetwork network = new NeuralNetwork(new ArrayList<>(List.of(4, 5, 3)),
+                new ArrayList<>(List.of(new Sigmoid(true), new Softmax())), 0.05, precision);
+        for (int epoch = 0; epoch < 10; epoch++) {
+            network.feedForward(inputs);
+            network.backpropagate(outputs);
+            network.updateWeights();
+        }
+        return network;
+    }
+
+    private Matrix randomMatrix(int rows, int cols) {
+        Matrix matrix = new Matrix(rows, cols);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++)
+                matrix.setElement(random.nextDouble(), row, col);
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,91 @@
+package neuralnetwork;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelTrainerTest {
+
+    private static final int SAMPLES = 25; // Shards of 8, 8 and 9, so the last worker has a step to itself
+    private static final int WORKERS = 3;
+    private static final int BATCH_SIZE = 2;
+    private static final int EPOCHS = 20;
+
+    /* Each parallel step must update the network as serial training does on the workers' batches
+    stacked in worker order, up to the order the replicas' deltas are summed in */
+    @Test
+    void matchesSerialTrainingInShardOrder() {
+        Random random = new Random(0);
+        Matrix inputs = new Matrix(SAMPLES, 4);
+        Matrix outputs = new Matrix(SAMPLES, 3);
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            for (int feature = 0; feature < 4; feature++)
+                inputs.setElement(random.nextDouble() * 8, sample, feature);
+            outputs.setElement(1, sample, random.nextInt(3));
+        }
+        NeuralNetwork parallel = new NeuralNetwork(new ArrayList<>(List.of(4, 5, 5, 3)),
+                new ArrayList<>(List.of(new Sigmoid(), new Tanh(), new Softmax())), 0.01);
+        parallel.setOptimizer(new Adam());
+        NeuralNetwork serial = new NeuralNetwork(parallel); // Same parameters, fresh Adam state
+
+        try (ParallelTrainer trainer = new ParallelTrainer(parallel, inputs, outputs, WORKERS, BATCH_SIZE)) {
+            trainer.train(EPOCHS);
+        }
+
+        int[] shardStarts = new int[WORKERS + 1];
+        for (int worker = 0; worker <= WORKERS; worker++)
+            shardStarts[worker] = SAMPLES * worker / WORKERS;
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            for (int step = 0; ; step++) {
+                ArrayList<Integer> rows = new ArrayList<>();
+                for (int worker = 0; worker < WORKERS; worker++) {
+                    int start = shardStarts[worker] + step * BATCH_SIZE;
+                    for (int row = start; row < Math.min(start + BATCH_SIZE, shardStarts[worker + 1]); row++)
+                        rows.add(row);
+                }
+                if (rows.isEmpty())
+                    break;
+                serial.feedForward(gather(inputs, rows));
+                serial.backpropagate(gather(outputs, rows));
+                serial.updateWeights();
+            }
+        }
+
+        for (int index = 0; index < parallel.getLayerCount(); index++) {
+            assertClose(serial.getLayer(index).getWeights(), parallel.getLayer(index).getWeights());
+            assertClose(serial.getLayer(index).getBiases(), parallel.getLayer(index).getBiases());
+        }
+    }
+
+    // Arguments are checked before the trainer creates its pool, which would otherwise be left running
+    @Test
+    void rejectsArgumentsBeforeCreatingPool() {
+        NeuralNetwork network = new NeuralNetwork(new ArrayList<>(List.of(4, 3)),
+                new ArrayList<>(List.of(new Softmax())), 0.01);
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> new ParallelTrainer(network, new Matrix(2, 4), new Matrix(2, 3), 0, BATCH_SIZE));
+        assertEquals("Need at least one worker and one sample per batch", exception.getMessage());
+    }
+
+    private static Matrix gather(Matrix source, List<Integer> rows) {
+        Matrix batch = new Matrix(rows.size(), source.getCols());
+        for (int row = 0; row < rows.size(); row++) {
+            for (int col = 0; col < source.getCols(); col++)
+                batch.setElement(source.getElement(rows.get(row), col), row, col);
+        }
+        return batch;
+    }
+
+    private static void assertClose(Matrix expected, Matrix actual) {
+        for (int row = 0; row < expected.getRows(); row++) {
+            for (int col = 0; col < expected.getCols(); col++)
+                assertEquals(expected.getElement(row, col), actual.getElement(row, col), 1e-12,
+                        "Element " + row + ", " + col);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package neuralnetwork;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantizedModelTest {
+
+    private static final int TRAIN_SIZE = 35; // Of each flower type's 50 samples, as Iris splits them
+    private static final int EPOCHS = 5000;
+
+    /* The int8 copy of the network Iris trains, calibrated on the training inputs as Iris does, must
+    lose at most 0.1% more on the test samples than the network itself, and pick the same flower
+    for each. On this split rounding the weights happens to lower the loss a little, so the bound
+    is one-sided */
+    @Test
+    void int8ModelPredictsIrisAsWellAsNetwork(@TempDir Path directory) throws IOException {
+        Dataset data = Dataset.open(Path.of("resources/iris.data"), directory.resolve("iris.cache"), 4);
+        Dataset train = data.subset(IntStream.range(0, data.size()).filter(row -> row % 50 < TRAIN_SIZE).toArray());
+        Dataset test = data.subset(IntStream.range(0, data.size()).filter(row -> row % 50 >= TRAIN_SIZE).toArray());
+        Matrix trainInputs = train.loadInputs();
+        Matrix testInputs = test.loadInputs();
+        Matrix testOutputs = test.loadOutputs();
+
+        NeuralNetwork network = new NeuralNetwork(new ArrayList<>(List.of(4, 5, 5, 5, 3)),
+                new ArrayList<>(List.of(new Sigmoid(), new Tanh(), new Sigmoid(), new Softmax())), 0.01);
+        try (DataLoader loader = new DataLoader(train, 1, true, 0, false)) {
+            for (int epoch = 0; epoch < EPOCHS; epoch++) {
+                loader.startEpoch();
+                while (loader.hasNext()) {
+                    DataLoader.Batch batch = loader.next();
+                    network.feedForward(batch.getInputs());
+                    network.backpropagate(batch.getOutputs());
+                    network.updateWeights();
+                }
+            }
+        }
+
+        QuantizedModel quantized = new QuantizedModel(network, trainInputs);
+        double loss = network.meanSquareError(testInputs, testOutputs);
+        double quantizedLoss = quantized.meanSquareError(testInputs, testOutputs);
+        assertTrue(quantizedLoss <= loss * 1.001, "Int8 loss " + quantizedLoss + " against " + loss);
+        network.feedForward(testInputs);
+        Matrix output = network.getOutput();
+        Matrix quantizedOutput = quantized.predict(testInputs);
+        for (int sample = 0; sample < testInputs.getRows(); sample++)
+            assertEquals(predictedClass(output, sample), predictedClass(quantizedOutput, sample), "Sample " + sample);
+    }
+
+    private static int predictedClass(Matrix output, int sample) {
+        int predicted = 0;
+        for (int col = 1; col < output.getCols(); col++) {
+            if (output.getElement(sample, col) > output.getElement(sample, predicted))
+                predicted = col;
+        }
+        return predicted;
+    }
+}
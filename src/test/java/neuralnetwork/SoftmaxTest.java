@@ -0,0 +1,30 @@
+package neuralnetwork;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SoftmaxTest {
+
+    // Logits far beyond where e^x overflows, in both precisions and with the approximate exp
+    @Test
+    void largeLogitsDoNotOverflow() {
+        for (Precision precision : Precision.values()) {
+            for (boolean approximate : new boolean[] {false, true}) {
+                Matrix logits = new Matrix(2, 3, precision);
+                logits.setElement(800, 0, 0);
+                logits.setElement(1, 0, 1);
+                logits.setElement(-800, 1, 0);
+                logits.setElement(-800, 1, 1);
+                logits.setElement(-800, 1, 2);
+                Matrix probabilities = new Softmax(approximate).function(logits);
+                String context = precision + (approximate ? ", approximate" : "");
+                assertEquals(1, probabilities.getElement(0, 0), 1e-6, context);
+                assertEquals(0, probabilities.getElement(0, 1), 1e-6, context);
+                assertEquals(0, probabilities.getElement(0, 2), 1e-6, context);
+                for (int col = 0; col < 3; col++)
+                    assertEquals(1.0 / 3, probabilities.getElement(1, col), 1e-6, context);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package neuralnetwork;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class SparseMatrixTest {
+
+    /* Training on one-hot inputs in sparse form must leave the network exactly as training on the
+    same inputs in dense form does, as the skipped values are all zero. This holds for plain SGD;
+    optimizers with state advance it only for the rows of inputs that are active */
+    @Test
+    void sparseTrainingMatchesDense() {
+        Random random = new Random(0);
+        int samples = 40;
+        Matrix inputs = new Matrix(samples, 12);
+        Matrix outputs = new Matrix(samples, 3);
+        for (int sample = 0; sample < samples; sample++) {
+            inputs.setElement(1, sample, random.nextInt(6)); // One of six categories
+            inputs.setElement(1, sample, 6 + random.nextInt(6)); // And one of six more
+            outputs.setElement(1, sample, random.nextInt(3));
+        }
+        NeuralNetwork dense = new NeuralNetwork(new ArrayList<>(List.of(12, 6, 3)),
+                new ArrayList<>(List.of(new Tanh(), new Softmax())), 0.05);
+        NeuralNetwork sparse = new NeuralNetwork(dense);
+
+        for (int epoch = 0; epoch < 20; epoch++) {
+            for (int start = 0; start < samples; start += 8) {
+                Matrix batchInputs = inputs.view(start, 0, 8, inputs.getCols());
+                Matrix batchOutputs = outputs.view(start, 0, 8, outputs.getCols());
+                dense.feedForward(batchInputs);
+                dense.backpropagate(batchOutputs);
+                dense.updateWeights();
+                sparse.feedForward(SparseMatrix.fromDense(batchInputs));
+                sparse.backpropagate(batchOutputs);
+                sparse.updateWeights();
+            }
+        }
+
+        for (int index = 0; index < dense.getLayerCount(); index++) {
+            CheckpointerTest.assertSameValues(dense.getLayer(index).getWeights(), sparse.getLayer(index).getWeights());
+            CheckpointerTest.assertSameValues(dense.getLayer(index).getBiases(), sparse.getLayer(index).getBiases());
+        }
+    }
+}